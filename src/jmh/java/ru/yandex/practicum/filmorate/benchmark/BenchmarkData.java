@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.GenresDbStorage;
+import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Deterministic datasets for the benchmarks. User i befriends users i+1..i+friendsPerUser and
+ * film f is liked by 1 + f % (2 * likesPerFilm) users, so neighbours share friends and the
+ * popularity ranking is not flat.
+ */
+final class BenchmarkData {
+    private static final int BATCH_SIZE = 1000;
+
+    private BenchmarkData() {
+    }
+
+    static HikariDataSource createDatabase() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("schema.sql"),
+                new ClassPathResource("data.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+        return dataSource;
+    }
+
+    static void closeDatabase(HikariDataSource dataSource) {
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+        dataSource.close();
+    }
+
+    static FilmDbStorage createFilmDbStorage(JdbcTemplate jdbcTemplate) {
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(new MpaDbStorage(jdbcTemplate),
+                new GenresDbStorage(jdbcTemplate));
+        referenceDataCache.reload();
+        FilmDbStorage filmDbStorage = new FilmDbStorage(jdbcTemplate, referenceDataCache);
+        filmDbStorage.rebuildIndexes();
+        return filmDbStorage;
+    }
+
+    static void fillUsers(UserStorage userStorage, int users, int friendsPerUser) {
+        List<User> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < users; i++) {
+            batch.add(new User(0,
+                    "user" + i + "@mail.ru",
+                    "user" + i,
+                    "Пользователь " + i,
+                    LocalDate.parse("1990-01-01"),
+                    IntSet.EMPTY));
+            if (batch.size() == BATCH_SIZE || i == users - 1) {
+                userStorage.addUsers(batch);
+                batch.clear();
+            }
+        }
+        List<Friendship> friendships = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < users; i++) {
+            for (int k = 1; k <= Math.min(friendsPerUser, users - 1); k++) {
+                friendships.add(new Friendship("user" + i, "user" + (i + k) % users));
+                if (friendships.size() == BATCH_SIZE) {
+                    userStorage.addFriendships(friendships);
+                    friendships.clear();
+                }
+            }
+        }
+        if (!friendships.isEmpty()) {
+            userStorage.addFriendships(friendships);
+        }
+    }
+
+    static void fillFilms(FilmStorage filmStorage, int films) {
+        List<Film> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < films; i++) {
+            batch.add(Film.builder()
+                    .name("Фильм " + i)
+                    .description("Описание фильма " + i)
+                    .releaseDate(LocalDate.parse("1990-01-01").plusDays(i))
+                    .duration(90 + i % 60)
+                    .mpa(new Mpa(1 + i % 5, null, null))
+                    .genres(Set.of(new Genre(1 + i % 6, null)))
+                    .likedUsersIds(IntSet.EMPTY)
+                    .build());
+            if (batch.size() == BATCH_SIZE || i == films - 1) {
+                filmStorage.addFilms(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    static List<Object[]> likes(int films, int users, int likesPerFilm) {
+        List<Object[]> likes = new ArrayList<>();
+        for (int filmId = 1; filmId <= films; filmId++) {
+            int likesCount = Math.min(users, 1 + filmId % (2 * likesPerFilm));
+            for (int k = 0; k < likesCount; k++) {
+                likes.add(new Object[]{(filmId * 7 + k) % users + 1, filmId});
+            }
+        }
+        return likes;
+    }
+
+    static void fillLikes(FilmDbStorage filmDbStorage, JdbcTemplate jdbcTemplate, List<Object[]> likes) {
+        for (int from = 0; from < likes.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate("INSERT INTO liked (user_id, film_id) VALUES (?, ?)",
+                    likes.subList(from, Math.min(from + BATCH_SIZE, likes.size())));
+        }
+        jdbcTemplate.update("UPDATE films f " +
+                "SET likes_count = (SELECT COUNT(*) FROM liked l WHERE l.film_id = f.film_id)");
+        filmDbStorage.rebuildPopularityIndex();
+    }
+
+    static void fillLikes(FilmStorage filmStorage, List<Object[]> likes) {
+        likes.forEach(like -> filmStorage.addLike((int) like[1], (int) like[0]));
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmStorageBenchmark {
+    @Param({"db", "memory"})
+    String storage;
+    @Param({"1000", "10000"})
+    int films;
+    @Param({"1000"})
+    int users;
+    @Param({"10", "100"})
+    int likesPerFilm;
+    private FilmStorage filmStorage;
+    private HikariDataSource database;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Object[]> likes = BenchmarkData.likes(films, users, likesPerFilm);
+        if (storage.equals("db")) {
+            database = BenchmarkData.createDatabase();
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+            BenchmarkData.fillUsers(new UserDbStorage(jdbcTemplate), users, 0);
+            FilmDbStorage filmDbStorage = BenchmarkData.createFilmDbStorage(jdbcTemplate);
+            BenchmarkData.fillFilms(filmDbStorage, films);
+            BenchmarkData.fillLikes(filmDbStorage, jdbcTemplate, likes);
+            filmStorage = filmDbStorage;
+        } else {
+            filmStorage = new InMemoryFilmStorage();
+            BenchmarkData.fillFilms(filmStorage, films);
+            BenchmarkData.fillLikes(filmStorage, likes);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (database != null) {
+            BenchmarkData.closeDatabase(database);
+        }
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return filmStorage.getFilmById(ThreadLocalRandom.current().nextInt(films) + 1);
+    }
+
+    @Benchmark
+    public List<Film> getFilms() {
+        return filmStorage.getFilms();
+    }
+
+    @Benchmark
+    public List<Film> getFilmsPage() {
+        return filmStorage.getFilms(ThreadLocalRandom.current().nextInt(films), 100);
+    }
+
+    @Benchmark
+    public List<Film> getMostPopularFilms() {
+        return filmStorage.getMostPopularFilms(10);
+    }
+
+    @Benchmark
+    public List<Film> getMostPopularFilmsByGenreAndYear() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return filmStorage.getMostPopularFilms(10, 1 + random.nextInt(6), 1990 + random.nextInt(10));
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserStorageBenchmark {
+    @Param({"db", "memory"})
+    String storage;
+    @Param({"1000", "10000"})
+    int users;
+    @Param({"10", "100"})
+    int friendsPerUser;
+    private UserStorage userStorage;
+    private UserService userService;
+    private HikariDataSource database;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (storage.equals("db")) {
+            database = BenchmarkData.createDatabase();
+            userStorage = new UserDbStorage(new JdbcTemplate(database));
+        } else {
+            userStorage = new InMemoryUserStorage();
+        }
+        BenchmarkData.fillUsers(userStorage, users, friendsPerUser);
+        userService = new UserService(userStorage, new FriendSuggestionService(userStorage, 10_000));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (database != null) {
+            BenchmarkData.closeDatabase(database);
+        }
+    }
+
+    @Benchmark
+    public User getUserById() {
+        return userStorage.getUserById(ThreadLocalRandom.current().nextInt(users) + 1);
+    }
+
+    @Benchmark
+    public List<User> getUsers() {
+        return userStorage.getUsers();
+    }
+
+    @Benchmark
+    public List<User> getMutualFriends() {
+        int id = ThreadLocalRandom.current().nextInt(users - 1) + 1;
+        return userService.getMutualFriends(id, id + 1);
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.storage.cache.CacheStats;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/cache")
+@ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true")
+public class CacheController {
+    private final CachingFilmStorage cachingFilmStorage;
+    private final CachingUserStorage cachingUserStorage;
+
+    @GetMapping("/stats")
+    public Map<String, CacheStats> getStats() {
+        return Map.of("films", cachingFilmStorage.getStats(),
+                "users", cachingUserStorage.getStats());
+    }
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.controller;
+
+/**
+ * Strong entity tags built from storage versions. Versions partly live in memory and restart from
+ * zero, so every tag also carries the start time of this instance.
+ */
+final class ETags {
+    private static final String INSTANCE = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private ETags() {
+    }
+
+    static String of(long... versions) {
+        StringBuilder etag = new StringBuilder("\"").append(INSTANCE);
+        for (long version : versions) {
+            etag.append('-').append(version);
+        }
+        return etag.append('"').toString();
+    }
+}
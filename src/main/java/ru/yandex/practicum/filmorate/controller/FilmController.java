@@ -1,21 +1,33 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Objects;
 
 @RestController
+@Validated
 @RequiredArgsConstructor
 @RequestMapping("/films")
 public class FilmController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private final FilmService filmService;
+    private final RecommendationService recommendationService;
 
     @GetMapping("/{id}")
-    public Film getFilmById(@PathVariable Integer id) {
+    public Film getFilmById(@PathVariable Integer id, WebRequest request) {
+        if (request.checkNotModified(ETags.of(filmService.getFilmVersion(id),
+                filmService.getReferenceDataVersion()))) {
+            return null;
+        }
         return filmService.getFilmById(id);
     }
 
@@ -32,8 +44,27 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") Integer count) {
-        return filmService.getMostPopularFilms(count);
+    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") Integer count,
+                                      @RequestParam(required = false) Integer genreId,
+                                      @RequestParam(required = false) Integer year,
+                                      WebRequest request) {
+        if (request.checkNotModified(ETags.of(filmService.getMostPopularFilmsVersion(count, genreId),
+                filmService.getReferenceDataVersion()))) {
+            return null;
+        }
+        return filmService.getMostPopularFilms(count, genreId, year);
+    }
+
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam String q,
+                                  @RequestParam(defaultValue = "10") Integer count) {
+        return filmService.searchFilms(q, count);
+    }
+
+    @GetMapping("/{id}/similar")
+    public List<Film> getSimilarFilms(@PathVariable Integer id,
+                                      @RequestParam(defaultValue = "10") Integer count) {
+        return recommendationService.getSimilarFilms(id, count);
     }
 
     @PostMapping
@@ -41,13 +72,27 @@ public class FilmController {
         return filmService.addFilm(newFilm);
     }
 
+    @PostMapping("/batch")
+    public List<Film> addFilms(@RequestBody List<@Valid Film> newFilms) {
+        return filmService.addFilms(newFilms);
+    }
+
     @PutMapping
     public Film updateFilm(@Valid @RequestBody Film updatedFilm) {
         return filmService.updateFilm(updatedFilm);
     }
 
     @GetMapping
-    public List<Film> getFilms() {
-        return filmService.getFilms();
+    public ResponseEntity<List<Film>> getFilms(@RequestParam(required = false) Integer after,
+                                               @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(filmService.getFilms());
+        }
+        List<Film> films = filmService.getFilms(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (films.size() == Objects.requireNonNullElse(limit, FilmService.DEFAULT_PAGE_SIZE)) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(films.get(films.size() - 1).getId()));
+        }
+        return response.body(films);
     }
 }
\ No newline at end of file
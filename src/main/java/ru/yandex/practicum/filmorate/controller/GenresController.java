@@ -5,6 +5,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenresService;
 
@@ -17,12 +18,20 @@ public class GenresController {
     private final GenresService genresService;
 
     @GetMapping("/{id}")
-    public Genre getGenreById(@PathVariable Integer id) {
-        return genresService.getGenreById(id);
+    public Genre getGenreById(@PathVariable Integer id, WebRequest request) {
+        long version = genresService.getVersion();
+        Genre genre = genresService.getGenreById(id);
+        if (request.checkNotModified(ETags.of(version))) {
+            return null;
+        }
+        return genre;
     }
 
     @GetMapping
-    public List<Genre> getAllGenres() {
+    public List<Genre> getAllGenres(WebRequest request) {
+        if (request.checkNotModified(ETags.of(genresService.getVersion()))) {
+            return null;
+        }
         return genresService.getAllGenres();
     }
 }
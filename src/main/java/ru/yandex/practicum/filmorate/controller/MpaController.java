@@ -5,6 +5,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
@@ -17,12 +18,20 @@ public class MpaController {
     private final MpaService mpaService;
 
     @GetMapping("/{id}")
-    public Mpa getMpaById(@PathVariable Integer id) {
-        return mpaService.getMpaById(id);
+    public Mpa getMpaById(@PathVariable Integer id, WebRequest request) {
+        long version = mpaService.getVersion();
+        Mpa mpa = mpaService.getMpaById(id);
+        if (request.checkNotModified(ETags.of(version))) {
+            return null;
+        }
+        return mpa;
     }
 
     @GetMapping
-    public List<Mpa> getAllMpa() {
+    public List<Mpa> getAllMpa(WebRequest request) {
+        if (request.checkNotModified(ETags.of(mpaService.getVersion()))) {
+            return null;
+        }
         return mpaService.getAllMpa();
     }
 }
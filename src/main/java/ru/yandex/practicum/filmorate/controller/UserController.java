@@ -1,21 +1,36 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ImportReport;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.UserImportService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/users")
 public class UserController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final RecommendationService recommendationService;
 
     @GetMapping("/{id}")
-    public User getUserById(@PathVariable Integer id) {
+    public User getUserById(@PathVariable Integer id, WebRequest request) {
+        if (request.checkNotModified(ETags.of(userService.getUserVersion(id)))) {
+            return null;
+        }
         return userService.getUserById(id);
     }
 
@@ -36,24 +51,50 @@ public class UserController {
         return userService.getFriends(id);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable Integer id,
+                                           @RequestParam(defaultValue = "10") Integer count) {
+        return userService.getFriendSuggestions(id, count);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable Integer id,
                                        @PathVariable Integer otherId) {
         return userService.getMutualFriends(id, otherId);
     }
 
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable Integer id,
+                                         @RequestParam(defaultValue = "10") Integer count) {
+        return recommendationService.getRecommendations(id, count);
+    }
+
     @PostMapping
     public User addUser(@Valid @RequestBody User newUser) {
         return userService.addUser(newUser);
     }
 
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ImportReport importUsers(HttpServletRequest request) throws IOException {
+        return userImportService.importUsers(request.getInputStream());
+    }
+
     @PutMapping
     public User updateUser(@Valid @RequestBody User updatedUser) {
         return userService.updateUser(updatedUser);
     }
 
     @GetMapping
-    public List<User> getUsers() {
-        return userService.getUsers();
+    public ResponseEntity<List<User>> getUsers(@RequestParam(required = false) Integer after,
+                                               @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(userService.getUsers());
+        }
+        List<User> users = userService.getUsers(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (users.size() == Objects.requireNonNullElse(limit, UserService.DEFAULT_PAGE_SIZE)) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(users.get(users.size() - 1).getId()));
+        }
+        return response.body(users);
     }
 }
\ No newline at end of file
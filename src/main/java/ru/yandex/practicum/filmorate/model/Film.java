@@ -19,10 +19,12 @@ public class Film {
     @Size(min = 0, max = 200) String description;
     LocalDate releaseDate;
     @DecimalMin("0") long duration;
+    @With
     Mpa mpa;
+    @With
     Integer likesCount;
     @With
-    Set<Integer> likedUsersIds;
+    IntSet likedUsersIds;
     @With
     Set<Genre> genres;
 }
@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+import javax.validation.constraints.NotBlank;
+
+@Value
+public class Friendship {
+    @NotBlank String login;
+    @NotBlank String friendLogin;
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class ImportReport {
+    long linesRead;
+    long usersAdded;
+    long friendshipsAdded;
+    long rejected;
+    List<Batch> batches;
+    List<RejectedLine> rejectedLines;
+
+    @Value
+    public static class Batch {
+        int number;
+        String type;
+        int accepted;
+        int rejected;
+    }
+
+    @Value
+    public static class RejectedLine {
+        long line;
+        String reason;
+    }
+}
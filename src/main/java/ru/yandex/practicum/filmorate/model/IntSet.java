@@ -0,0 +1,214 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable set of ints stored as a sorted array without duplicates: 4 bytes per element,
+ * binary-search membership and merge-based intersection without boxing.
+ */
+@JsonSerialize(using = IntSet.Serializer.class)
+public final class IntSet extends AbstractSet<Integer> {
+    public static final IntSet EMPTY = new IntSet(new int[0]);
+    private final int[] values;
+
+    private IntSet(int[] values) {
+        this.values = values;
+    }
+
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static IntSet of(int... values) {
+        return fromUnsorted(values.clone(), values.length);
+    }
+
+    public static IntSet copyOf(Collection<Integer> values) {
+        if (values instanceof IntSet) {
+            return (IntSet) values;
+        }
+        int[] array = new int[values.size()];
+        int size = 0;
+        for (Integer value : values) {
+            array[size++] = value;
+        }
+        return fromUnsorted(array, size);
+    }
+
+    private static IntSet fromUnsorted(int[] array, int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(array, 0, size);
+        int distinct = 1;
+        for (int i = 1; i < size; i++) {
+            if (array[i] != array[distinct - 1]) {
+                array[distinct++] = array[i];
+            }
+        }
+        return new IntSet(distinct == array.length ? array : Arrays.copyOf(array, distinct));
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer && contains((int) (Integer) value);
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    public IntSet with(int value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index >= 0) {
+            return this;
+        }
+        int insertion = -index - 1;
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, insertion);
+        result[insertion] = value;
+        System.arraycopy(values, insertion, result, insertion + 1, values.length - insertion);
+        return new IntSet(result);
+    }
+
+    public IntSet without(int value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index < 0) {
+            return this;
+        }
+        int[] result = new int[values.length - 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+        return new IntSet(result);
+    }
+
+    public int intersectionSize(IntSet other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < values.length && j < other.values.length) {
+            if (values[i] < other.values[j]) {
+                i++;
+            } else if (values[i] > other.values[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    public IntSet intersect(IntSet other) {
+        int[] result = new int[Math.min(values.length, other.values.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < values.length && j < other.values.length) {
+            if (values[i] < other.values[j]) {
+                i++;
+            } else if (values[i] > other.values[j]) {
+                j++;
+            } else {
+                result[size++] = values[i];
+                i++;
+                j++;
+            }
+        }
+        return size == 0 ? EMPTY : new IntSet(size == result.length ? result : Arrays.copyOf(result, size));
+    }
+
+    public void forEachInt(IntConsumer action) {
+        for (int value : values) {
+            action.accept(value);
+        }
+    }
+
+    public int[] toIntArray() {
+        return values.clone();
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < values.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (index >= values.length) {
+                    throw new NoSuchElementException();
+                }
+                return values[index++];
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof IntSet) {
+            return Arrays.equals(values, ((IntSet) o).values);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int value : values) {
+            hash += value;
+        }
+        return hash;
+    }
+
+    public static class Builder {
+        private int[] values = new int[8];
+        private int size;
+
+        public Builder add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            return this;
+        }
+
+        public IntSet build() {
+            return fromUnsorted(Arrays.copyOf(values, size), size);
+        }
+    }
+
+    static class Serializer extends StdSerializer<IntSet> {
+        Serializer() {
+            super(IntSet.class);
+        }
+
+        @Override
+        public void serialize(IntSet value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeArray(value.values, 0, value.values.length);
+        }
+    }
+}
@@ -7,7 +7,6 @@ import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 import java.time.LocalDate;
-import java.util.Set;
 
 @Value
 public class User {
@@ -20,5 +19,5 @@ public class User {
     String name;
     LocalDate birthday;
     @With
-    Set<Integer> friendsIds;
+    IntSet friendsIds;
 }
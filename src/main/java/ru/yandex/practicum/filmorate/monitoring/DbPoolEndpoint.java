@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "dbpool")
+public class DbPoolEndpoint {
+    private final DbPoolMetrics dbPoolMetrics;
+
+    @ReadOperation
+    public PoolStats getStats() {
+        return dbPoolMetrics.getStats();
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+public class DbPoolMetrics {
+    public static final String ACQUIRE_METRIC = "hikaricp.connections.acquire";
+    public static final String USAGE_METRIC = "hikaricp.connections.usage";
+    private final DataSource dataSource;
+    private final MeterRegistry meterRegistry;
+
+    public PoolStats getStats() {
+        HikariPoolMXBean pool = getPool();
+        HikariDataSource hikari = getHikari();
+        List<PoolStats.TimerStats> storageCalls = meterRegistry.find(StorageTimingPostProcessor.METRIC_NAME)
+                .timers()
+                .stream()
+                .map(t -> toStats(t.getId().getTag("storage") + "." + t.getId().getTag("method"), t))
+                .sorted(Comparator.comparing(PoolStats.TimerStats::getName))
+                .collect(Collectors.toList());
+        return new PoolStats(pool == null ? null : pool.getActiveConnections(),
+                pool == null ? null : pool.getIdleConnections(),
+                pool == null ? null : pool.getThreadsAwaitingConnection(),
+                pool == null ? null : pool.getTotalConnections(),
+                hikari == null ? null : hikari.getMaximumPoolSize(),
+                toStats(ACQUIRE_METRIC, getAcquireTimer()),
+                toStats(USAGE_METRIC, meterRegistry.find(USAGE_METRIC).timer()),
+                storageCalls);
+    }
+
+    public Timer getAcquireTimer() {
+        return meterRegistry.find(ACQUIRE_METRIC).timer();
+    }
+
+    public HikariPoolMXBean getPool() {
+        HikariDataSource hikari = getHikari();
+        return hikari == null ? null : hikari.getHikariPoolMXBean();
+    }
+
+    private HikariDataSource getHikari() {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    private static PoolStats.TimerStats toStats(String name, Timer timer) {
+        if (timer == null) {
+            return null;
+        }
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            percentiles.put(String.valueOf(percentile.percentile()), percentile.value(TimeUnit.MILLISECONDS));
+        }
+        return new PoolStats.TimerStats(name,
+                snapshot.count(),
+                snapshot.mean(TimeUnit.MILLISECONDS),
+                snapshot.max(TimeUnit.MILLISECONDS),
+                percentiles);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class PoolSaturationMonitor {
+    private final DbPoolMetrics dbPoolMetrics;
+    private final double acquireBudgetMs;
+    private final int pendingThreshold;
+    private long lastAcquireCount;
+
+    public PoolSaturationMonitor(DbPoolMetrics dbPoolMetrics,
+                                 @Value("${filmorate.pool.alert.acquire-budget-ms:50}") double acquireBudgetMs,
+                                 @Value("${filmorate.pool.alert.pending-threshold:5}") int pendingThreshold) {
+        this.dbPoolMetrics = dbPoolMetrics;
+        this.acquireBudgetMs = acquireBudgetMs;
+        this.pendingThreshold = pendingThreshold;
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.pool.alert.check-interval-ms:10000}")
+    public void checkSaturation() {
+        findAlerts().forEach(log::warn);
+    }
+
+    synchronized List<String> findAlerts() {
+        List<String> alerts = new ArrayList<>();
+        Timer acquire = dbPoolMetrics.getAcquireTimer();
+        if (acquire != null && acquire.count() > lastAcquireCount) {
+            lastAcquireCount = acquire.count();
+            double maxWaitMs = acquire.max(TimeUnit.MILLISECONDS);
+            if (maxWaitMs > acquireBudgetMs) {
+                alerts.add(String.format("Ожидание соединения из пула %.2f мс превысило бюджет %.2f мс",
+                        maxWaitMs,
+                        acquireBudgetMs));
+            }
+        }
+        HikariPoolMXBean pool = dbPoolMetrics.getPool();
+        if (pool != null && pool.getThreadsAwaitingConnection() > pendingThreshold) {
+            alerts.add(String.format("Соединения из пула ждут %d потоков, порог %d (активных %d из %d)",
+                    pool.getThreadsAwaitingConnection(),
+                    pendingThreshold,
+                    pool.getActiveConnections(),
+                    pool.getTotalConnections()));
+        }
+        return alerts;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+@Value
+public class PoolStats {
+    Integer active;
+    Integer idle;
+    Integer pending;
+    Integer total;
+    Integer max;
+    TimerStats acquire;
+    TimerStats usage;
+    List<TimerStats> storageCalls;
+
+    @Value
+    public static class TimerStats {
+        String name;
+        long count;
+        double meanMs;
+        double maxMs;
+        Map<String, Double> percentilesMs;
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every call into the JDBC storages. The timer wraps the transaction advice, so a call's
+ * duration bounds how long it held its pooled connection.
+ */
+@Component
+@RequiredArgsConstructor
+public class StorageTimingPostProcessor implements BeanPostProcessor {
+    public static final String METRIC_NAME = "filmorate.storage.calls";
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> targetClass = AopUtils.getTargetClass(bean);
+        if (targetClass != FilmDbStorage.class && targetClass != UserDbStorage.class) {
+            return bean;
+        }
+        MethodInterceptor interceptor = new TimingInterceptor(targetClass.getSimpleName());
+        if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+            ((Advised) bean).addAdvice(0, interceptor);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy();
+    }
+
+    @RequiredArgsConstructor
+    private class TimingInterceptor implements MethodInterceptor {
+        private final String storage;
+        private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Method method = invocation.getMethod();
+            if (method.getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                timers.computeIfAbsent(method, m -> Timer.builder(METRIC_NAME)
+                                .description("Время вызова метода хранилища вместе с удержанием соединения")
+                                .tag("storage", storage)
+                                .tag("method", m.getName())
+                                .register(meterRegistry.getObject()))
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -1,56 +1,87 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class FilmService {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
     private final FilmStorage filmDbStorage;
-    private final UserStorage userDbStorage;
+    private final RecommendationService recommendationService;
+    private final ObjectProvider<LikeBufferService> likeBufferService;
+    private final ReferenceDataCache referenceDataCache;
 
     public void addLike(int filmId, int userId) {
-        Film film = filmDbStorage.getFilmById(filmId);
-        User user = userDbStorage.getUserById(userId);
-        if (film == null) {
-            throw new NotFoundException("Фильм с id=" + filmId + " не найден");
-        }
-        if (user == null) {
-            throw new NotFoundException("Пользователь с id=" + userId + " не найден");
+        LikeBufferService buffer = likeBufferService.getIfAvailable();
+        if (buffer != null) {
+            buffer.addLike(filmId, userId);
+            return;
         }
-        Set<Integer> likes = film.getLikedUsersIds();
-        likes.add(userId);
-        film = film.withLikedUsersIds(likes);
-        filmDbStorage.updateFilm(film);
+        filmDbStorage.addLike(filmId, userId);
+        recommendationService.markStale();
     }
 
     public void removeLike(int filmId, int userId) {
-        Film film = filmDbStorage.getFilmById(filmId);
-        User user = userDbStorage.getUserById(userId);
-        if (film == null) {
-            throw new NotFoundException("Фильм с id=" + filmId + " не найден");
+        LikeBufferService buffer = likeBufferService.getIfAvailable();
+        if (buffer != null) {
+            buffer.removeLike(filmId, userId);
+            return;
         }
-        if (user == null) {
-            throw new NotFoundException("Пользователь с id=" + userId + " не найден");
+        filmDbStorage.removeLike(filmId, userId);
+        recommendationService.markStale();
+    }
+
+    public List<Film> getMostPopularFilms(int count, Integer genreId, Integer year) {
+        checkPopularCount(count);
+        return withPendingLikes(filmDbStorage.getMostPopularFilms(count, genreId, year));
+    }
+
+    /**
+     * Version of the film as returned by {@link #getFilmById}, pending likes included.
+     */
+    public long getFilmVersion(int id) {
+        LikeBufferService buffer = likeBufferService.getIfAvailable();
+        long version = filmDbStorage.getFilmVersion(id);
+        return buffer == null ? version : version + buffer.getFilmVersion(id);
+    }
+
+    /**
+     * Version of all films and their likes, which popular films are ranked by. The arguments are
+     * validated first, so an invalid request is rejected even with a current tag.
+     */
+    public long getMostPopularFilmsVersion(int count, Integer genreId) {
+        checkPopularCount(count);
+        if (genreId != null) {
+            referenceDataCache.getGenreById(genreId);
         }
-        Set<Integer> likes = film.getLikedUsersIds();
-        likes.remove(userId);
-        film = film.withLikedUsersIds(likes);
-        filmDbStorage.updateFilm(film);
+        LikeBufferService buffer = likeBufferService.getIfAvailable();
+        long version = filmDbStorage.getFilmsVersion();
+        return buffer == null ? version : version + buffer.getVersion();
     }
 
-    public List<Film> getMostPopularFilms(int count) {
-        return filmDbStorage.getMostPopularFilms(count);
+    /**
+     * Version of the genres and MPA ratings embedded in films.
+     */
+    public long getReferenceDataVersion() {
+        return referenceDataCache.getVersion();
+    }
+
+    public List<Film> searchFilms(String query, int count) {
+        if (query == null || query.isBlank() || count <= 0 || count > MAX_PAGE_SIZE) {
+            throw new ValidationException();
+        }
+        return withPendingLikes(filmDbStorage.searchFilms(query, count));
     }
 
     public Film getFilmById(int id) {
@@ -58,7 +89,8 @@ public class FilmService {
         if (film == null) {
             throw new NotFoundException("Фильм с id=" + id + " не найден");
         }
-        return film;
+        LikeBufferService buffer = likeBufferService.getIfAvailable();
+        return buffer == null ? film : buffer.withPendingLikes(film);
     }
 
     public Film addFilm(Film film) {
@@ -68,6 +100,13 @@ public class FilmService {
         return filmDbStorage.addFilm(film);
     }
 
+    public List<Film> addFilms(List<Film> films) {
+        if (films.stream().anyMatch(this::isFilmDataErrors)) {
+            throw new ValidationException();
+        }
+        return filmDbStorage.addFilms(films);
+    }
+
     public Film updateFilm(Film film) {
         if (filmDbStorage.getFilmById(film.getId()) == null) {
             throw new NotFoundException("Фильм с id=" + film.getId() + " не найден");
@@ -75,11 +114,26 @@ public class FilmService {
         if (isFilmDataErrors(film)) {
             throw new ValidationException();
         }
-        return filmDbStorage.updateFilm(film);
+        Film updatedFilm = filmDbStorage.updateFilm(film);
+        recommendationService.markStale();
+        return updatedFilm;
     }
 
     public List<Film> getFilms() {
-        return filmDbStorage.getFilms();
+        return withPendingLikes(filmDbStorage.getFilms());
+    }
+
+    public List<Film> getFilms(Integer after, Integer limit) {
+        if (after == null) {
+            after = 0;
+        }
+        if (limit == null) {
+            limit = DEFAULT_PAGE_SIZE;
+        }
+        if (after < 0 || limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException();
+        }
+        return withPendingLikes(filmDbStorage.getFilms(after, limit));
     }
 
     public void removeFilm(int id) {
@@ -87,9 +141,21 @@ public class FilmService {
             throw new NotFoundException("Фильм с id=" + id + " не найден");
         }
         filmDbStorage.removeFilm(id);
+        recommendationService.markStale();
+    }
+
+    private List<Film> withPendingLikes(List<Film> films) {
+        LikeBufferService buffer = likeBufferService.getIfAvailable();
+        return buffer == null ? films : buffer.withPendingLikes(films);
     }
 
     private boolean isFilmDataErrors(Film film) {
         return film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28));
     }
+
+    private static void checkPopularCount(int count) {
+        if (count <= 0 || count > MAX_PAGE_SIZE) {
+            throw new ValidationException();
+        }
+    }
 }
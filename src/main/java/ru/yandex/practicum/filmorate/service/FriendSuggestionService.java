@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.recommendation.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the friendship graph in memory. Single friendship changes go to the graph overlay under the
+ * read lock; loading and compaction swap the whole graph under the write lock, so no change is
+ * applied to a graph that is being replaced.
+ */
+@Slf4j
+@Service
+public class FriendSuggestionService {
+    public static final int MAX_COUNT = 100;
+    private final UserStorage userDbStorage;
+    private final int compactionThreshold;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile FriendGraph graph;
+
+    public FriendSuggestionService(UserStorage userDbStorage,
+                                   @Value("${filmorate.friends.graph.compaction-threshold:10000}") int compactionThreshold) {
+        this.userDbStorage = userDbStorage;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public List<User> getSuggestions(int id, int count) {
+        if (count <= 0 || count > MAX_COUNT) {
+            throw new ValidationException();
+        }
+        if (!userDbStorage.userExists(id)) {
+            throw new NotFoundException("Пользователь с id=" + id + " не найден");
+        }
+        return userDbStorage.getUsersByIds(Arrays.stream(getGraph().suggest(id, count))
+                .boxed()
+                .collect(Collectors.toList()));
+    }
+
+    public void onFriendAdded(int id, int friendId) {
+        update(g -> g.addFriend(id, friendId));
+    }
+
+    public void onFriendRemoved(int id, int friendId) {
+        update(g -> g.removeFriend(id, friendId));
+    }
+
+    public void onFriendsReplaced(int id, IntSet friendsIds) {
+        update(g -> g.setFriends(id, friendsIds));
+    }
+
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            graph = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void update(Consumer<FriendGraph> change) {
+        boolean needsCompaction;
+        lock.readLock().lock();
+        try {
+            FriendGraph current = graph;
+            if (current == null) {
+                return;
+            }
+            change.accept(current);
+            needsCompaction = current.getOverlaySize() > compactionThreshold;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (needsCompaction) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        lock.writeLock().lock();
+        try {
+            if (graph != null && graph.getOverlaySize() > compactionThreshold) {
+                graph = graph.compact();
+                log.info("Граф дружбы уплотнён");
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private FriendGraph getGraph() {
+        FriendGraph current = graph;
+        if (current != null) {
+            return current;
+        }
+        lock.writeLock().lock();
+        try {
+            if (graph == null) {
+                graph = FriendGraph.of(userDbStorage.getFriendsIdsByUser());
+            }
+            return graph;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -3,20 +3,24 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.storage.GenresDbStorage;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
 
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class GenresService {
-    private final GenresDbStorage genresDbStorage;
+    private final ReferenceDataCache referenceDataCache;
 
     public Genre getGenreById(int id) {
-        return genresDbStorage.getGenreById(id);
+        return referenceDataCache.getGenreById(id);
     }
 
     public List<Genre> getAllGenres() {
-        return genresDbStorage.getAllGenres();
+        return referenceDataCache.getAllGenres();
+    }
+
+    public long getVersion() {
+        return referenceDataCache.getVersion();
     }
 }
@@ -0,0 +1,221 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.service.like.LikeLog;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind mode for likes. A change is appended to the {@link LikeLog} and to the pending
+ * changes, which reads overlay on stored films, and is acknowledged once the log is synced. The
+ * flusher keeps the last change per film and user and applies them in one transaction before
+ * deleting the flushed segments; segments left by a crash are replayed on startup.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "filmorate.likes.write-behind.enabled", havingValue = "true")
+public class LikeBufferService {
+    private final FilmStorage filmDbStorage;
+    private final UserStorage userDbStorage;
+    private final RecommendationService recommendationService;
+    private final Path directory;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Map<Integer, Map<Integer, Boolean>> pending = new ConcurrentHashMap<>();
+    private volatile Map<Integer, Map<Integer, Boolean>> flushing = Map.of();
+    private final Map<Integer, LongAdder> changesById = new ConcurrentHashMap<>();
+    private final LongAdder changes = new LongAdder();
+    private LikeLog likeLog;
+
+    public LikeBufferService(FilmStorage filmDbStorage,
+                             UserStorage userDbStorage,
+                             RecommendationService recommendationService,
+                             @Value("${filmorate.likes.write-behind.dir:./db/likes}") String directory) {
+        this.filmDbStorage = filmDbStorage;
+        this.userDbStorage = userDbStorage;
+        this.recommendationService = recommendationService;
+        this.directory = Path.of(directory);
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        likeLog = new LikeLog(directory);
+        for (long segment : likeLog.getSegments()) {
+            int records = likeLog.replay(segment, (like, filmId, userId) -> pending
+                    .computeIfAbsent(filmId, id -> new ConcurrentHashMap<>())
+                    .put(userId, like));
+            log.info("Из сегмента {} журнала лайков восстановлено изменений: {}", segment, records);
+        }
+        flush();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        flush();
+        likeLog.close();
+    }
+
+    public void addLike(int filmId, int userId) {
+        change(true, filmId, userId);
+    }
+
+    public void removeLike(int filmId, int userId) {
+        change(false, filmId, userId);
+    }
+
+    public Film withPendingLikes(Film film) {
+        IntSet likedUsersIds = film.getLikedUsersIds() == null ? IntSet.EMPTY : film.getLikedUsersIds();
+        IntSet changedUsersIds;
+        lock.readLock().lock();
+        try {
+            changedUsersIds = applyChanges(applyChanges(likedUsersIds, flushing.get(film.getId())),
+                    pending.get(film.getId()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (changedUsersIds == likedUsersIds) {
+            return film;
+        }
+        return film.withLikedUsersIds(changedUsersIds).withLikesCount(changedUsersIds.size());
+    }
+
+    public List<Film> withPendingLikes(List<Film> films) {
+        return films.stream()
+                .map(this::withPendingLikes)
+                .collect(Collectors.toList());
+    }
+
+    public int getPendingCount() {
+        lock.readLock().lock();
+        try {
+            return countChanges(flushing) + countChanges(pending);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of changes buffered for the film since startup; it only grows.
+     */
+    public long getFilmVersion(int filmId) {
+        LongAdder filmChanges = changesById.get(filmId);
+        return filmChanges == null ? 0 : filmChanges.sum();
+    }
+
+    public long getVersion() {
+        return changes.sum();
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.write-behind.flush-interval-ms:200}")
+    public synchronized void flush() throws IOException {
+        long segment;
+        lock.writeLock().lock();
+        try {
+            if (pending.isEmpty() && flushing.isEmpty()) {
+                return;
+            }
+            Map<Integer, Map<Integer, Boolean>> changes = new HashMap<>();
+            flushing.forEach((filmId, filmChanges) -> changes.put(filmId, new HashMap<>(filmChanges)));
+            pending.forEach((filmId, filmChanges) -> changes.computeIfAbsent(filmId, id -> new HashMap<>())
+                    .putAll(filmChanges));
+            flushing = changes;
+            pending = new ConcurrentHashMap<>();
+            segment = likeLog.roll();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Map<Integer, IntSet> addedLikes = new HashMap<>();
+        Map<Integer, IntSet> removedLikes = new HashMap<>();
+        flushing.forEach((filmId, filmChanges) -> {
+            List<Integer> likes = new ArrayList<>();
+            List<Integer> unlikes = new ArrayList<>();
+            filmChanges.forEach((userId, like) -> (like ? likes : unlikes).add(userId));
+            if (!likes.isEmpty()) {
+                addedLikes.put(filmId, IntSet.copyOf(likes));
+            }
+            if (!unlikes.isEmpty()) {
+                removedLikes.put(filmId, IntSet.copyOf(unlikes));
+            }
+        });
+        try {
+            filmDbStorage.applyLikeChanges(addedLikes, removedLikes);
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать изменения лайков, повтор при следующей выгрузке", e);
+            return;
+        }
+        flushing = Map.of();
+        likeLog.deleteUpTo(segment);
+        recommendationService.markStale();
+    }
+
+    private void change(boolean like, int filmId, int userId) {
+        if (!filmDbStorage.filmExists(filmId)) {
+            throw new NotFoundException("Фильм с id=" + filmId + " не найден");
+        }
+        if (!userDbStorage.userExists(userId)) {
+            throw new NotFoundException("Пользователь с id=" + userId + " не найден");
+        }
+        long[] position = new long[1];
+        lock.readLock().lock();
+        try {
+            pending.compute(filmId, (id, filmChanges) -> {
+                try {
+                    position[0] = likeLog.append(like, filmId, userId);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (filmChanges == null) {
+                    filmChanges = new ConcurrentHashMap<>();
+                }
+                filmChanges.put(userId, like);
+                return filmChanges;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        changesById.computeIfAbsent(filmId, id -> new LongAdder()).increment();
+        changes.increment();
+        try {
+            likeLog.sync(position[0]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static IntSet applyChanges(IntSet likedUsersIds, Map<Integer, Boolean> changes) {
+        if (changes == null) {
+            return likedUsersIds;
+        }
+        for (Map.Entry<Integer, Boolean> change : changes.entrySet()) {
+            likedUsersIds = change.getValue()
+                    ? likedUsersIds.with(change.getKey())
+                    : likedUsersIds.without(change.getKey());
+        }
+        return likedUsersIds;
+    }
+
+    private static int countChanges(Map<Integer, Map<Integer, Boolean>> changes) {
+        return changes.values().stream().mapToInt(Map::size).sum();
+    }
+}
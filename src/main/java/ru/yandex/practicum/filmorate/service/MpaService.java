@@ -3,20 +3,24 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Mpa;
-import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
 
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class MpaService {
-    private final MpaDbStorage mpaDbStorage;
+    private final ReferenceDataCache referenceDataCache;
 
     public Mpa getMpaById(int id) {
-        return mpaDbStorage.getMpaById(id);
+        return referenceDataCache.getMpaById(id);
     }
 
     public List<Mpa> getAllMpa() {
-        return mpaDbStorage.getAllMpa();
+        return referenceDataCache.getAllMpa();
+    }
+
+    public long getVersion() {
+        return referenceDataCache.getVersion();
     }
 }
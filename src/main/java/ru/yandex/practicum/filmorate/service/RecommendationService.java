@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.recommendation.SimilarityModel;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class RecommendationService {
+    public static final int MAX_COUNT = 100;
+    private final FilmStorage filmDbStorage;
+    private final UserStorage userDbStorage;
+    private final int neighboursPerFilm;
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+    private volatile SimilarityModel model;
+
+    public RecommendationService(FilmStorage filmDbStorage,
+                                 UserStorage userDbStorage,
+                                 @Value("${filmorate.recommendations.neighbours:50}") int neighboursPerFilm) {
+        this.filmDbStorage = filmDbStorage;
+        this.userDbStorage = userDbStorage;
+        this.neighboursPerFilm = neighboursPerFilm;
+    }
+
+    public List<Film> getSimilarFilms(int filmId, int count) {
+        checkCount(count);
+        if (!filmDbStorage.filmExists(filmId)) {
+            throw new NotFoundException("Фильм с id=" + filmId + " не найден");
+        }
+        return filmDbStorage.getFilmsByIds(toList(getModel().similar(filmId, count)));
+    }
+
+    public List<Film> getRecommendations(int userId, int count) {
+        checkCount(count);
+        if (!userDbStorage.userExists(userId)) {
+            throw new NotFoundException("Пользователь с id=" + userId + " не найден");
+        }
+        return filmDbStorage.getFilmsByIds(toList(getModel().recommend(userId, count)));
+    }
+
+    public void markStale() {
+        stale.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.refresh-interval-ms:30000}")
+    public void refreshIfStale() {
+        if (stale.get()) {
+            rebuild();
+        }
+    }
+
+    public synchronized void rebuild() {
+        stale.set(false);
+        long start = System.nanoTime();
+        try {
+            model = SimilarityModel.build(filmDbStorage.getLikedUsersIdsByFilm(),
+                    neighboursPerFilm,
+                    ForkJoinPool.commonPool());
+        } catch (RuntimeException e) {
+            stale.set(true);
+            throw e;
+        }
+        log.info("Модель рекомендаций перестроена за {} мс: фильмов {}, пользователей {}",
+                (System.nanoTime() - start) / 1_000_000,
+                model.getFilmsCount(),
+                model.getUsersCount());
+    }
+
+    private SimilarityModel getModel() {
+        if (model == null) {
+            synchronized (this) {
+                if (model == null) {
+                    rebuild();
+                }
+            }
+        }
+        return model;
+    }
+
+    private void checkCount(int count) {
+        if (count <= 0 || count > MAX_COUNT) {
+            throw new ValidationException();
+        }
+    }
+
+    private static List<Integer> toList(int[] ids) {
+        return Arrays.stream(ids).boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.ImportReport;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserImportService {
+    public static final int BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+    private final UserStorage userDbStorage;
+    private final UserService userService;
+    private final FriendSuggestionService friendSuggestionService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public ImportReport importUsers(InputStream body) throws IOException {
+        ImportState state = new ImportState();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                state.linesRead++;
+                if (!line.isBlank()) {
+                    readLine(state, line);
+                }
+            }
+        }
+        flushUsers(state);
+        flushFriendships(state);
+        return new ImportReport(state.linesRead,
+                state.usersAdded,
+                state.friendshipsAdded,
+                state.rejected,
+                state.batches,
+                state.rejectedLines);
+    }
+
+    private void readLine(ImportState state, String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            if (node.has("friendLogin")) {
+                flushUsers(state);
+                Friendship friendship = objectMapper.treeToValue(node, Friendship.class);
+                checkConstraints(friendship);
+                state.friendships.add(friendship);
+                state.friendshipLines.add(state.linesRead);
+                if (state.friendships.size() == BATCH_SIZE) {
+                    flushFriendships(state);
+                }
+            } else {
+                flushFriendships(state);
+                User user = objectMapper.treeToValue(node, User.class);
+                checkConstraints(user);
+                if (user.getBirthday() == null) {
+                    throw new ValidationException();
+                }
+                state.users.add(userService.prepareUser(user));
+                state.userLines.add(state.linesRead);
+                if (state.users.size() == BATCH_SIZE) {
+                    flushUsers(state);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            reject(state, state.linesRead, e.getOriginalMessage());
+        } catch (ValidationException e) {
+            reject(state, state.linesRead, e.getMessage());
+        }
+    }
+
+    private void checkConstraints(Object value) {
+        Set<ConstraintViolation<Object>> violations = validator.validate(value);
+        if (!violations.isEmpty()) {
+            throw new ValidationException();
+        }
+    }
+
+    private void flushUsers(ImportState state) {
+        if (state.users.isEmpty()) {
+            return;
+        }
+        int[] added = userDbStorage.addUsers(state.users);
+        int accepted = countAccepted(state, added, state.userLines, "пользователь с таким email или логином уже существует");
+        state.usersAdded += accepted;
+        addBatch(state, "users", accepted, added.length - accepted);
+        state.users.clear();
+        state.userLines.clear();
+    }
+
+    private void flushFriendships(ImportState state) {
+        if (state.friendships.isEmpty()) {
+            return;
+        }
+        int[] added = userDbStorage.addFriendships(state.friendships);
+        int accepted = countAccepted(state, added, state.friendshipLines, "пользователь не найден или дружба уже существует");
+        state.friendshipsAdded += accepted;
+        if (accepted > 0) {
+            friendSuggestionService.invalidate();
+        }
+        addBatch(state, "friendships", accepted, added.length - accepted);
+        state.friendships.clear();
+        state.friendshipLines.clear();
+    }
+
+    private int countAccepted(ImportState state, int[] added, List<Long> lines, String reason) {
+        int accepted = 0;
+        for (int i = 0; i < added.length; i++) {
+            if (added[i] > 0) {
+                accepted++;
+            } else {
+                reject(state, lines.get(i), reason);
+            }
+        }
+        return accepted;
+    }
+
+    private void addBatch(ImportState state, String type, int accepted, int rejected) {
+        ImportReport.Batch batch = new ImportReport.Batch(state.batches.size() + 1, type, accepted, rejected);
+        state.batches.add(batch);
+        log.info("Импорт: пакет {} ({}) — добавлено {}, отклонено {}, прочитано строк {}",
+                batch.getNumber(),
+                type,
+                accepted,
+                rejected,
+                state.linesRead);
+    }
+
+    private void reject(ImportState state, long line, String reason) {
+        state.rejected++;
+        if (state.rejectedLines.size() < MAX_REPORTED_REJECTIONS) {
+            state.rejectedLines.add(new ImportReport.RejectedLine(line, reason));
+        }
+    }
+
+    private static class ImportState {
+        private final List<User> users = new ArrayList<>(BATCH_SIZE);
+        private final List<Long> userLines = new ArrayList<>(BATCH_SIZE);
+        private final List<Friendship> friendships = new ArrayList<>(BATCH_SIZE);
+        private final List<Long> friendshipLines = new ArrayList<>(BATCH_SIZE);
+        private final List<ImportReport.Batch> batches = new ArrayList<>();
+        private final List<ImportReport.RejectedLine> rejectedLines = new ArrayList<>();
+        private long linesRead;
+        private long usersAdded;
+        private long friendshipsAdded;
+        private long rejected;
+    }
+}
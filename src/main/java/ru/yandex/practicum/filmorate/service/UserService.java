@@ -9,108 +9,93 @@ import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
     private final UserStorage userDbStorage;
+    private final FriendSuggestionService friendSuggestionService;
 
     public void addFriend(int id, int friendId) {
-        User firstFriend = getUserById(id);
-        User secondFriend = getUserById(friendId);
-        if (firstFriend == null) {
-            throw new NotFoundException("Пользователь с id=" + id + " не найден");
-        }
-        if (secondFriend == null) {
-            throw new NotFoundException("Пользователь с id=" + friendId + " не найден");
-        }
-        Set<Integer> userFriendsIds = firstFriend.getFriendsIds();
-        userFriendsIds.add(friendId);
-        firstFriend = firstFriend.withFriendsIds(userFriendsIds);
-        userDbStorage.updateUser(firstFriend);
+        userDbStorage.addFriend(id, friendId);
+        friendSuggestionService.onFriendAdded(id, friendId);
     }
 
     public void removeFriend(int id, int friendId) {
-        User firstFriend = getUserById(id);
-        User secondFriend = getUserById(friendId);
-        if (firstFriend == null) {
-            throw new NotFoundException("Пользователь с id=" + id + " не найден");
-        }
-        if (secondFriend == null) {
-            throw new NotFoundException("Пользователь с id=" + friendId + " не найден");
-        }
-        Set<Integer> userFriendsIds = firstFriend.getFriendsIds();
-        userFriendsIds.remove(friendId);
-        firstFriend = firstFriend.withFriendsIds(userFriendsIds);
-        userDbStorage.updateUser(firstFriend);
+        userDbStorage.removeFriend(id, friendId);
+        friendSuggestionService.onFriendRemoved(id, friendId);
     }
 
     public List<User> getMutualFriends(int id, int friendId) {
-        User firstUser = getUserById(id);
-        User secondUser = getUserById(friendId);
-        if (firstUser == null || secondUser == null) {
-            return new ArrayList<>();
-        }
-        Set<Integer> firstUserFriends = firstUser.getFriendsIds();
-        Set<Integer> secondUserFriends = secondUser.getFriendsIds();
-        Set<Integer> mutual = new HashSet<>(firstUserFriends);
-        mutual.retainAll(secondUserFriends);
-        return mutual.stream().map(this::getUserById).collect(Collectors.toList());
+        return userDbStorage.getCommonFriends(id, friendId);
     }
 
     public User getUserById(int id) {
         return userDbStorage.getUserById(id);
     }
 
+    public long getUserVersion(int id) {
+        return userDbStorage.getUserVersion(id);
+    }
+
     public List<User> getFriends(int id) {
-        return userDbStorage.getUserById(id)
-                .getFriendsIds()
-                .stream()
-                .map(this::getUserById)
-                .collect(Collectors.toList());
+        return userDbStorage.getFriends(id);
+    }
+
+    public List<User> getFriendSuggestions(int id, int count) {
+        return friendSuggestionService.getSuggestions(id, count);
     }
 
     public User addUser(User user) {
-        if (isUserDataErrors(user)) {
-            throw new ValidationException();
-        }
-        String name = user.getName();
-        if (StringUtils.isBlank(name)) {
-            name = user.getLogin();
-        }
-        user = user.withName(name);
-        return userDbStorage.addUser(user);
+        return userDbStorage.addUser(prepareUser(user));
     }
 
     public User updateUser(User user) {
         if (userDbStorage.getUserById(user.getId()) == null) {
             throw new NotFoundException("Пользователь с id=" + user.getId() + " не найден");
         }
-        if (isUserDataErrors(user)) {
-            throw new ValidationException();
-        }
-        String name = user.getName();
-        if (StringUtils.isBlank(name)) {
-            name = user.getLogin();
-        }
-        user = user.withName(name);
-        return userDbStorage.updateUser(user);
+        User updatedUser = userDbStorage.updateUser(prepareUser(user));
+        friendSuggestionService.onFriendsReplaced(updatedUser.getId(), updatedUser.getFriendsIds());
+        return updatedUser;
     }
 
     public List<User> getUsers() {
         return userDbStorage.getUsers();
     }
 
+    public List<User> getUsers(Integer after, Integer limit) {
+        if (after == null) {
+            after = 0;
+        }
+        if (limit == null) {
+            limit = DEFAULT_PAGE_SIZE;
+        }
+        if (after < 0 || limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException();
+        }
+        return userDbStorage.getUsers(after, limit);
+    }
+
     public void removeUser(int id) {
         if (userDbStorage.getUserById(id) == null) {
             throw new NotFoundException("Пользователь с id=" + id + " не найден");
         }
         userDbStorage.removeUser(id);
+        friendSuggestionService.invalidate();
+    }
+
+    User prepareUser(User user) {
+        if (isUserDataErrors(user)) {
+            throw new ValidationException();
+        }
+        String name = user.getName();
+        if (StringUtils.isBlank(name)) {
+            name = user.getLogin();
+        }
+        return user.withName(name);
     }
 
     private boolean isUserDataErrors(User user) {
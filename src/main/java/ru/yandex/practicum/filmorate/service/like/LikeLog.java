@@ -0,0 +1,176 @@
+package ru.yandex.practicum.filmorate.service.like;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of like changes split into numbered segment files. A record is the operation,
+ * the film and user ids and a CRC32 of those nine bytes; replay stops at the first torn or corrupt
+ * record. Appenders that finish writing while an fsync is running share the next one.
+ */
+public class LikeLog implements Closeable {
+    public static final int RECORD_SIZE = 13;
+    private static final byte LIKE = 1;
+    private static final byte UNLIKE = 0;
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("\\d+\\.wal");
+    private final Path directory;
+    private final Object syncLock = new Object();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 checksum = new CRC32();
+    private FileChannel channel;
+    private long segment;
+    private long written;
+    private volatile long synced;
+
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(boolean like, int filmId, int userId);
+    }
+
+    public LikeLog(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        List<Long> segments = getSegments();
+        segment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1;
+        channel = open(segment);
+    }
+
+    /**
+     * Numbers of the segments preceding the one being written, oldest first.
+     */
+    public List<Long> getSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> SEGMENT_NAME.matcher(name).matches())
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .filter(number -> number != segment)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Writes a record without syncing it and returns the log position to pass to {@link #sync}.
+     */
+    public synchronized long append(boolean like, int filmId, int userId) throws IOException {
+        record.clear();
+        record.put(like ? LIKE : UNLIKE).putInt(filmId).putInt(userId);
+        checksum.reset();
+        checksum.update(record.array(), 0, RECORD_SIZE - Integer.BYTES);
+        record.putInt((int) checksum.getValue());
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        written += RECORD_SIZE;
+        return written;
+    }
+
+    public void sync(long position) throws IOException {
+        if (synced >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced >= position) {
+                return;
+            }
+            long target;
+            FileChannel current;
+            synchronized (this) {
+                target = written;
+                current = channel;
+            }
+            current.force(false);
+            synced = target;
+        }
+    }
+
+    /**
+     * Syncs and closes the current segment, starts the next one and returns the closed segment's
+     * number.
+     */
+    public long roll() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.force(false);
+                channel.close();
+                synced = written;
+                long closedSegment = segment;
+                segment++;
+                channel = open(segment);
+                return closedSegment;
+            }
+        }
+    }
+
+    /**
+     * Passes the valid records of a segment to the consumer in order and returns their number.
+     */
+    public int replay(long segment, RecordConsumer consumer) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path(segment)));
+        CRC32 recordChecksum = new CRC32();
+        int records = 0;
+        while (data.remaining() >= RECORD_SIZE) {
+            int start = data.position();
+            byte operation = data.get();
+            int filmId = data.getInt();
+            int userId = data.getInt();
+            int expectedChecksum = data.getInt();
+            recordChecksum.reset();
+            recordChecksum.update(data.array(), start, RECORD_SIZE - Integer.BYTES);
+            if ((int) recordChecksum.getValue() != expectedChecksum || (operation != LIKE && operation != UNLIKE)) {
+                break;
+            }
+            consumer.accept(operation == LIKE, filmId, userId);
+            records++;
+        }
+        return records;
+    }
+
+    public void deleteUpTo(long lastSegment) throws IOException {
+        for (long number : getSegments()) {
+            if (number <= lastSegment) {
+                Files.deleteIfExists(path(number));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.force(false);
+                channel.close();
+                synced = written;
+            }
+        }
+    }
+
+    private FileChannel open(long number) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(path(number),
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException e) {
+            // Some platforms cannot open or sync directories; the segment's own fsync still applies.
+        }
+        return segmentChannel;
+    }
+
+    private Path path(long number) {
+        return directory.resolve(number + SEGMENT_SUFFIX);
+    }
+}
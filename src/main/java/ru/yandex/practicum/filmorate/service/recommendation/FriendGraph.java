@@ -0,0 +1,174 @@
+package ru.yandex.practicum.filmorate.service.recommendation;
+
+import ru.yandex.practicum.filmorate.model.IntSet;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Directed friendship graph: an immutable CSR snapshot (sorted user ids, row offsets and one flat
+ * array of sorted friend ids) plus an overlay with the full current friend set of every user changed
+ * since the snapshot was taken. {@link #compact()} folds the overlay into a new snapshot.
+ */
+public final class FriendGraph {
+    private final int[] userIds;
+    private final int[] offsets;
+    private final int[] friends;
+    private final Map<Integer, IntSet> overlay = new ConcurrentHashMap<>();
+
+    private FriendGraph(int[] userIds, int[] offsets, int[] friends) {
+        this.userIds = userIds;
+        this.offsets = offsets;
+        this.friends = friends;
+    }
+
+    public static FriendGraph of(Map<Integer, IntSet> friendsIdsByUser) {
+        int[] userIds = friendsIdsByUser.entrySet()
+                .stream()
+                .filter(e -> !e.getValue().isEmpty())
+                .mapToInt(Map.Entry::getKey)
+                .sorted()
+                .toArray();
+        int[] offsets = new int[userIds.length + 1];
+        for (int i = 0; i < userIds.length; i++) {
+            offsets[i + 1] = offsets[i] + friendsIdsByUser.get(userIds[i]).size();
+        }
+        int[] friends = new int[offsets[userIds.length]];
+        for (int i = 0; i < userIds.length; i++) {
+            int position = offsets[i];
+            IntSet friendsIds = friendsIdsByUser.get(userIds[i]);
+            for (int k = 0; k < friendsIds.size(); k++) {
+                friends[position++] = friendsIds.get(k);
+            }
+        }
+        return new FriendGraph(userIds, offsets, friends);
+    }
+
+    public void addFriend(int id, int friendId) {
+        change(id, friendsIds -> friendsIds.with(friendId));
+    }
+
+    public void removeFriend(int id, int friendId) {
+        change(id, friendsIds -> friendsIds.without(friendId));
+    }
+
+    public void setFriends(int id, IntSet friendsIds) {
+        overlay.put(id, friendsIds);
+    }
+
+    public IntSet getFriends(int id) {
+        IntSet friendsIds = overlay.get(id);
+        if (friendsIds != null) {
+            return friendsIds;
+        }
+        int row = Arrays.binarySearch(userIds, id);
+        return row < 0 ? IntSet.EMPTY : IntSet.of(Arrays.copyOfRange(friends, offsets[row], offsets[row + 1]));
+    }
+
+    public int getOverlaySize() {
+        return overlay.size();
+    }
+
+    public FriendGraph compact() {
+        Map<Integer, IntSet> changed = Map.copyOf(overlay);
+        IntSet.Builder ids = new IntSet.Builder();
+        for (int userId : userIds) {
+            ids.add(userId);
+        }
+        changed.keySet().forEach(ids::add);
+        int[] allIds = ids.build().toIntArray();
+        int[] newOffsets = new int[allIds.length + 1];
+        int rows = 0;
+        for (int id : allIds) {
+            int size = friendsCount(id, changed.get(id));
+            if (size > 0) {
+                newOffsets[rows + 1] = newOffsets[rows] + size;
+                allIds[rows++] = id;
+            }
+        }
+        int[] newFriends = new int[newOffsets[rows]];
+        for (int i = 0; i < rows; i++) {
+            appendFriends(allIds[i], changed.get(allIds[i]), newFriends, newOffsets[i]);
+        }
+        return new FriendGraph(Arrays.copyOf(allIds, rows), Arrays.copyOf(newOffsets, rows + 1), newFriends);
+    }
+
+    /**
+     * Friends of friends of the user who are not the user or already friends, ordered by the number
+     * of mutual friends, then by id.
+     */
+    public int[] suggest(int id, int count) {
+        int[] direct = getFriends(id).toIntArray();
+        IntSet[] changedRows = new IntSet[direct.length];
+        int total = 0;
+        for (int i = 0; i < direct.length; i++) {
+            changedRows[i] = overlay.get(direct[i]);
+            total += friendsCount(direct[i], changedRows[i]);
+        }
+        int[] candidates = new int[total];
+        int size = 0;
+        for (int i = 0; i < direct.length; i++) {
+            int from = size;
+            size = appendFriends(direct[i], changedRows[i], candidates, size);
+            int kept = from;
+            for (int k = from; k < size; k++) {
+                int candidate = candidates[k];
+                if (candidate != id && Arrays.binarySearch(direct, candidate) < 0) {
+                    candidates[kept++] = candidate;
+                }
+            }
+            size = kept;
+        }
+        Arrays.sort(candidates, 0, size);
+        long[] ranked = new long[size];
+        int rankedSize = 0;
+        for (int from = 0; from < size; ) {
+            int to = from + 1;
+            while (to < size && candidates[to] == candidates[from]) {
+                to++;
+            }
+            ranked[rankedSize++] = rankKey(candidates[from], to - from);
+            from = to;
+        }
+        Arrays.sort(ranked, 0, rankedSize);
+        int[] result = new int[Math.min(count, rankedSize)];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = (int) ranked[k];
+        }
+        return result;
+    }
+
+    private void change(int id, UnaryOperator<IntSet> change) {
+        overlay.compute(id, (userId, friendsIds) -> change.apply(friendsIds == null ? getFriends(userId) : friendsIds));
+    }
+
+    private int friendsCount(int id, IntSet changedFriendsIds) {
+        if (changedFriendsIds != null) {
+            return changedFriendsIds.size();
+        }
+        int row = Arrays.binarySearch(userIds, id);
+        return row < 0 ? 0 : offsets[row + 1] - offsets[row];
+    }
+
+    private int appendFriends(int id, IntSet changedFriendsIds, int[] target, int position) {
+        if (changedFriendsIds != null) {
+            for (int k = 0; k < changedFriendsIds.size(); k++) {
+                target[position++] = changedFriendsIds.get(k);
+            }
+            return position;
+        }
+        int row = Arrays.binarySearch(userIds, id);
+        if (row < 0) {
+            return position;
+        }
+        int length = offsets[row + 1] - offsets[row];
+        System.arraycopy(friends, offsets[row], target, position, length);
+        return position + length;
+    }
+
+    private static long rankKey(int userId, int mutualFriends) {
+        return ((long) (Integer.MAX_VALUE - mutualFriends) << 32) | (userId & 0xFFFFFFFFL);
+    }
+}
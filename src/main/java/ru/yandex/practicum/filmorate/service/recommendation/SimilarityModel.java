@@ -0,0 +1,350 @@
+package ru.yandex.practicum.filmorate.service.recommendation;
+
+import ru.yandex.practicum.filmorate.model.IntSet;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Item-item model: for every film the top-K films by cosine similarity of their liker sets,
+ * |A ∩ B| / sqrt(|A| * |B|). Co-occurrence counts are gathered sparsely through the user -> films
+ * lists, one film per step, in parallel fork-join tasks that share a pool of per-film counter arrays,
+ * so each worker allocates them once per build. Neighbours and the user -> films lists are kept as
+ * CSR arrays (offsets + flat int/float arrays) indexed by position in sorted id arrays.
+ */
+public final class SimilarityModel {
+    public static final SimilarityModel EMPTY = new SimilarityModel(new int[0],
+            new int[1],
+            new int[0],
+            new float[0],
+            new int[0],
+            new int[1],
+            new int[0]);
+    private static final int LEAF_SIZE = 64;
+    private final int[] filmIds;
+    private final int[] neighbourOffsets;
+    private final int[] neighbours;
+    private final float[] scores;
+    private final int[] userIds;
+    private final int[] userOffsets;
+    private final int[] userFilms;
+
+    private SimilarityModel(int[] filmIds, int[] neighbourOffsets, int[] neighbours, float[] scores,
+                            int[] userIds, int[] userOffsets, int[] userFilms) {
+        this.filmIds = filmIds;
+        this.neighbourOffsets = neighbourOffsets;
+        this.neighbours = neighbours;
+        this.scores = scores;
+        this.userIds = userIds;
+        this.userOffsets = userOffsets;
+        this.userFilms = userFilms;
+    }
+
+    public static SimilarityModel build(Map<Integer, IntSet> likedUsersIdsByFilm, int neighboursPerFilm,
+                                        ForkJoinPool pool) {
+        int[] filmIds = likedUsersIdsByFilm.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        if (filmIds.length == 0) {
+            return EMPTY;
+        }
+        IntSet.Builder users = new IntSet.Builder();
+        likedUsersIdsByFilm.values().forEach(likers -> likers.forEachInt(users::add));
+        int[] userIds = users.build().toIntArray();
+
+        int[] filmOffsets = new int[filmIds.length + 1];
+        for (int i = 0; i < filmIds.length; i++) {
+            filmOffsets[i + 1] = filmOffsets[i] + likedUsersIdsByFilm.get(filmIds[i]).size();
+        }
+        int[] filmUsers = new int[filmOffsets[filmIds.length]];
+        int[] userOffsets = new int[userIds.length + 1];
+        for (int i = 0; i < filmIds.length; i++) {
+            int position = filmOffsets[i];
+            IntSet likers = likedUsersIdsByFilm.get(filmIds[i]);
+            for (int k = 0; k < likers.size(); k++) {
+                int user = Arrays.binarySearch(userIds, likers.get(k));
+                filmUsers[position++] = user;
+                userOffsets[user + 1]++;
+            }
+        }
+        for (int u = 0; u < userIds.length; u++) {
+            userOffsets[u + 1] += userOffsets[u];
+        }
+        int[] userFilms = new int[filmUsers.length];
+        int[] userPositions = Arrays.copyOf(userOffsets, userIds.length);
+        for (int i = 0; i < filmIds.length; i++) {
+            for (int p = filmOffsets[i]; p < filmOffsets[i + 1]; p++) {
+                userFilms[userPositions[filmUsers[p]]++] = i;
+            }
+        }
+
+        int[][] neighbourLists = new int[filmIds.length][];
+        float[][] scoreLists = new float[filmIds.length][];
+        pool.invoke(new NeighboursTask(filmOffsets,
+                filmUsers,
+                userOffsets,
+                userFilms,
+                neighboursPerFilm,
+                neighbourLists,
+                scoreLists,
+                new ConcurrentLinkedQueue<>(),
+                0,
+                filmIds.length));
+
+        int[] neighbourOffsets = new int[filmIds.length + 1];
+        for (int i = 0; i < filmIds.length; i++) {
+            neighbourOffsets[i + 1] = neighbourOffsets[i] + neighbourLists[i].length;
+        }
+        int[] neighbours = new int[neighbourOffsets[filmIds.length]];
+        float[] scores = new float[neighbours.length];
+        for (int i = 0; i < filmIds.length; i++) {
+            System.arraycopy(neighbourLists[i], 0, neighbours, neighbourOffsets[i], neighbourLists[i].length);
+            System.arraycopy(scoreLists[i], 0, scores, neighbourOffsets[i], scoreLists[i].length);
+        }
+        return new SimilarityModel(filmIds, neighbourOffsets, neighbours, scores, userIds, userOffsets, userFilms);
+    }
+
+    public int[] similar(int filmId, int count) {
+        int film = Arrays.binarySearch(filmIds, filmId);
+        if (film < 0) {
+            return new int[0];
+        }
+        int from = neighbourOffsets[film];
+        int size = Math.min(count, neighbourOffsets[film + 1] - from);
+        int[] result = new int[size];
+        for (int k = 0; k < size; k++) {
+            result[k] = filmIds[neighbours[from + k]];
+        }
+        return result;
+    }
+
+    public int[] recommend(int userId, int count) {
+        int user = Arrays.binarySearch(userIds, userId);
+        if (user < 0) {
+            return new int[0];
+        }
+        int likedFrom = userOffsets[user];
+        int likedTo = userOffsets[user + 1];
+        int candidatesCount = 0;
+        for (int p = likedFrom; p < likedTo; p++) {
+            candidatesCount += neighbourOffsets[userFilms[p] + 1] - neighbourOffsets[userFilms[p]];
+        }
+        long[] candidates = new long[candidatesCount];
+        int size = 0;
+        for (int p = likedFrom; p < likedTo; p++) {
+            int film = userFilms[p];
+            for (int n = neighbourOffsets[film]; n < neighbourOffsets[film + 1]; n++) {
+                if (Arrays.binarySearch(userFilms, likedFrom, likedTo, neighbours[n]) < 0) {
+                    candidates[size++] = ((long) neighbours[n] << 32) | (Float.floatToIntBits(scores[n]) & 0xFFFFFFFFL);
+                }
+            }
+        }
+        Arrays.sort(candidates, 0, size);
+        TopK top = new TopK(count);
+        for (int from = 0; from < size; ) {
+            int film = (int) (candidates[from] >>> 32);
+            float score = 0;
+            int to = from;
+            while (to < size && (int) (candidates[to] >>> 32) == film) {
+                score += Float.intBitsToFloat((int) candidates[to]);
+                to++;
+            }
+            top.offer(film, score);
+            from = to;
+        }
+        int[] result = top.sortedIds();
+        for (int k = 0; k < result.length; k++) {
+            result[k] = filmIds[result[k]];
+        }
+        return result;
+    }
+
+    public int getFilmsCount() {
+        return filmIds.length;
+    }
+
+    public int getUsersCount() {
+        return userIds.length;
+    }
+
+    private static class NeighboursTask extends RecursiveAction {
+        private final int[] filmOffsets;
+        private final int[] filmUsers;
+        private final int[] userOffsets;
+        private final int[] userFilms;
+        private final int neighboursPerFilm;
+        private final int[][] neighbourLists;
+        private final float[][] scoreLists;
+        private final Queue<Scratch> scratchPool;
+        private final int from;
+        private final int to;
+
+        private NeighboursTask(int[] filmOffsets, int[] filmUsers, int[] userOffsets, int[] userFilms,
+                               int neighboursPerFilm, int[][] neighbourLists, float[][] scoreLists,
+                               Queue<Scratch> scratchPool, int from, int to) {
+            this.filmOffsets = filmOffsets;
+            this.filmUsers = filmUsers;
+            this.userOffsets = userOffsets;
+            this.userFilms = userFilms;
+            this.neighboursPerFilm = neighboursPerFilm;
+            this.neighbourLists = neighbourLists;
+            this.scoreLists = scoreLists;
+            this.scratchPool = scratchPool;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new NeighboursTask(filmOffsets, filmUsers, userOffsets, userFilms, neighboursPerFilm,
+                                neighbourLists, scoreLists, scratchPool, from, middle),
+                        new NeighboursTask(filmOffsets, filmUsers, userOffsets, userFilms, neighboursPerFilm,
+                                neighbourLists, scoreLists, scratchPool, middle, to));
+                return;
+            }
+            Scratch scratch = scratchPool.poll();
+            if (scratch == null) {
+                scratch = new Scratch(filmOffsets.length - 1);
+            }
+            computeLeaf(scratch.coLikes, scratch.touched);
+            scratchPool.offer(scratch);
+        }
+
+        /**
+         * Expects zeroed co-like counters and leaves them zeroed, resetting only the touched entries.
+         */
+        private void computeLeaf(int[] coLikes, int[] touched) {
+            for (int film = from; film < to; film++) {
+                int touchedCount = 0;
+                for (int p = filmOffsets[film]; p < filmOffsets[film + 1]; p++) {
+                    int user = filmUsers[p];
+                    for (int q = userOffsets[user]; q < userOffsets[user + 1]; q++) {
+                        int other = userFilms[q];
+                        if (other != film && coLikes[other]++ == 0) {
+                            touched[touchedCount++] = other;
+                        }
+                    }
+                }
+                TopK top = new TopK(neighboursPerFilm);
+                double degree = filmOffsets[film + 1] - filmOffsets[film];
+                for (int t = 0; t < touchedCount; t++) {
+                    int other = touched[t];
+                    double otherDegree = filmOffsets[other + 1] - filmOffsets[other];
+                    top.offer(other, (float) (coLikes[other] / Math.sqrt(degree * otherDegree)));
+                    coLikes[other] = 0;
+                }
+                neighbourLists[film] = top.sortedIds();
+                scoreLists[film] = top.sortedScores();
+            }
+        }
+    }
+
+    private static class Scratch {
+        private final int[] coLikes;
+        private final int[] touched;
+
+        private Scratch(int filmsCount) {
+            this.coLikes = new int[filmsCount];
+            this.touched = new int[filmsCount];
+        }
+    }
+
+    /**
+     * Bounded min-heap on parallel arrays; the root is the weakest entry (lowest score, then highest index).
+     */
+    private static class TopK {
+        private final int[] ids;
+        private final float[] scores;
+        private int size;
+        private boolean sorted;
+
+        private TopK(int capacity) {
+            this.ids = new int[Math.max(capacity, 0)];
+            this.scores = new float[ids.length];
+        }
+
+        private void offer(int id, float score) {
+            if (size < ids.length) {
+                ids[size] = id;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (size > 0 && weaker(ids[0], scores[0], id, score)) {
+                ids[0] = id;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        private int[] sortedIds() {
+            sort();
+            return Arrays.copyOf(ids, size);
+        }
+
+        private float[] sortedScores() {
+            sort();
+            return Arrays.copyOf(scores, size);
+        }
+
+        private void sort() {
+            if (sorted) {
+                return;
+            }
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+            sorted = true;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!weaker(ids[index], scores[index], ids[parent], scores[parent])) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            siftDown(index, size);
+        }
+
+        private void siftDown(int index, int limit) {
+            while (true) {
+                int weakest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < limit && weaker(ids[left], scores[left], ids[weakest], scores[weakest])) {
+                    weakest = left;
+                }
+                if (right < limit && weaker(ids[right], scores[right], ids[weakest], scores[weakest])) {
+                    weakest = right;
+                }
+                if (weakest == index) {
+                    return;
+                }
+                swap(index, weakest);
+                index = weakest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            float score = scores[i];
+            scores[i] = scores[j];
+            scores[j] = score;
+        }
+
+        private static boolean weaker(int id, float score, int otherId, float otherScore) {
+            return score < otherScore || (score == otherScore && id > otherId);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataCache {
+    private final MpaDbStorage mpaDbStorage;
+    private final GenresDbStorage genresDbStorage;
+    private final AtomicLong versions = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    public void reload() {
+        List<Mpa> mpaList = List.copyOf(mpaDbStorage.getAllMpa());
+        List<Genre> genres = List.copyOf(genresDbStorage.getAllGenres());
+        Mpa[] mpaById = new Mpa[mpaList.stream().mapToInt(Mpa::getId).max().orElse(0) + 1];
+        mpaList.forEach(m -> mpaById[m.getId()] = m);
+        Genre[] genresById = new Genre[genres.stream().mapToInt(Genre::getId).max().orElse(0) + 1];
+        genres.forEach(g -> genresById[g.getId()] = g);
+        snapshot = new Snapshot(mpaById, genresById, mpaList, genres, versions.incrementAndGet());
+    }
+
+    public Mpa getMpaById(int id) {
+        Mpa[] mpaById = snapshot.mpaById;
+        if (id < 0 || id >= mpaById.length || mpaById[id] == null) {
+            throw new NotFoundException("Возрастное ограничение с id = " + id + " не найдено");
+        }
+        return mpaById[id];
+    }
+
+    public List<Mpa> getAllMpa() {
+        return snapshot.mpaList;
+    }
+
+    public Genre getGenreById(int id) {
+        Genre[] genresById = snapshot.genresById;
+        if (id < 0 || id >= genresById.length || genresById[id] == null) {
+            throw new NotFoundException("Жанр фильма с id = " + id + " не найден");
+        }
+        return genresById[id];
+    }
+
+    public List<Genre> getAllGenres() {
+        return snapshot.genres;
+    }
+
+    /**
+     * Version of the loaded genres and MPA ratings; it grows on every reload.
+     */
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    @RequiredArgsConstructor
+    private static class Snapshot {
+        private final Mpa[] mpaById;
+        private final Genre[] genresById;
+        private final List<Mpa> mpaList;
+        private final List<Genre> genres;
+        private final long version;
+    }
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import lombok.Value;
+
+@Value
+public class CacheStats {
+    long hits;
+    long misses;
+    long evictions;
+    int size;
+    int maxSize;
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Segmented LRU: new entries start in the probation segment and are promoted to the protected
+ * segment on their second hit, so one-off reads cannot flush frequently used entries.
+ * Each load registers a token for its key, which invalidating that key drops; a load whose token
+ * is gone by the time it finishes is returned to the caller but not cached.
+ */
+public class SegmentedLruCache<K, V> {
+    private final int maxSize;
+    private final int protectedMaxSize;
+    private final LinkedHashMap<K, V> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final HashMap<K, Object> loadTokens = new HashMap<>();
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public SegmentedLruCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Размер кэша должен быть положительным");
+        }
+        this.maxSize = maxSize;
+        this.protectedMaxSize = Math.max(1, maxSize * 4 / 5);
+    }
+
+    public V getOrLoad(K key, Function<K, V> loader) {
+        Object loadToken = new Object();
+        synchronized (this) {
+            V value = protectedSegment.get(key);
+            if (value == null) {
+                value = probation.remove(key);
+                if (value != null) {
+                    promote(key, value);
+                }
+            }
+            if (value != null) {
+                hits++;
+                return value;
+            }
+            misses++;
+            loadTokens.put(key, loadToken);
+        }
+        V value = null;
+        try {
+            value = loader.apply(key);
+        } finally {
+            synchronized (this) {
+                if (loadTokens.remove(key, loadToken) && value != null) {
+                    insert(key, value);
+                }
+            }
+        }
+        return value;
+    }
+
+    public synchronized void invalidate(K key) {
+        loadTokens.remove(key);
+        probation.remove(key);
+        protectedSegment.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        loadTokens.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits, misses, evictions, probation.size() + protectedSegment.size(), maxSize);
+    }
+
+    private void promote(K key, V value) {
+        protectedSegment.put(key, value);
+        if (protectedSegment.size() > protectedMaxSize) {
+            Iterator<Map.Entry<K, V>> eldest = protectedSegment.entrySet().iterator();
+            Map.Entry<K, V> demoted = eldest.next();
+            eldest.remove();
+            probation.put(demoted.getKey(), demoted.getValue());
+        }
+        trim();
+    }
+
+    private void insert(K key, V value) {
+        if (protectedSegment.containsKey(key)) {
+            protectedSegment.put(key, value);
+            return;
+        }
+        probation.put(key, value);
+        trim();
+    }
+
+    private void trim() {
+        while (probation.size() + protectedSegment.size() > maxSize) {
+            LinkedHashMap<K, V> segment = probation.isEmpty() ? protectedSegment : probation;
+            Iterator<K> eldest = segment.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+}
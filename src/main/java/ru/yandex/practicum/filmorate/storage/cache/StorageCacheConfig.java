@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+@Configuration
+@ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true")
+public class StorageCacheConfig {
+    @Bean
+    @Primary
+    public CachingFilmStorage cachingFilmStorage(FilmDbStorage filmDbStorage,
+                                                 @Value("${filmorate.cache.films.max-size:10000}") int maxSize) {
+        return new CachingFilmStorage(filmDbStorage, maxSize);
+    }
+
+    @Bean
+    @Primary
+    public CachingUserStorage cachingUserStorage(UserDbStorage userDbStorage,
+                                                 @Value("${filmorate.cache.users.max-size:10000}") int maxSize) {
+        return new CachingUserStorage(userDbStorage, maxSize);
+    }
+}
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.storage.cache.CacheStats;
+import ru.yandex.practicum.filmorate.storage.cache.SegmentedLruCache;
+
+import java.util.List;
+import java.util.Map;
+
+public class CachingFilmStorage implements FilmStorage {
+    private final FilmStorage filmStorage;
+    private final SegmentedLruCache<Integer, Film> filmsById;
+
+    public CachingFilmStorage(FilmStorage filmStorage, int maxSize) {
+        this.filmStorage = filmStorage;
+        this.filmsById = new SegmentedLruCache<>(maxSize);
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        return filmStorage.addFilm(film);
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        return filmStorage.addFilms(films);
+    }
+
+    @Override
+    public void removeFilm(int id) {
+        try {
+            filmStorage.removeFilm(id);
+        } finally {
+            filmsById.invalidate(id);
+        }
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        try {
+            return filmStorage.updateFilm(film);
+        } finally {
+            filmsById.invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public Film getFilmById(int id) {
+        return filmsById.getOrLoad(id, filmStorage::getFilmById);
+    }
+
+    @Override
+    public boolean filmExists(int id) {
+        return filmStorage.filmExists(id);
+    }
+
+    @Override
+    public List<Film> getFilms() {
+        return filmStorage.getFilms();
+    }
+
+    @Override
+    public List<Film> getFilms(int after, int limit) {
+        return filmStorage.getFilms(after, limit);
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        return filmStorage.searchFilms(query, count);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids) {
+        return filmStorage.getFilmsByIds(ids);
+    }
+
+    @Override
+    public List<Film> getMostPopularFilms(int count) {
+        return filmStorage.getMostPopularFilms(count);
+    }
+
+    @Override
+    public List<Film> getMostPopularFilms(int count, Integer genreId, Integer year) {
+        return filmStorage.getMostPopularFilms(count, genreId, year);
+    }
+
+    @Override
+    public void addLike(int filmId, int userId) {
+        try {
+            filmStorage.addLike(filmId, userId);
+        } finally {
+            filmsById.invalidate(filmId);
+        }
+    }
+
+    @Override
+    public void removeLike(int filmId, int userId) {
+        try {
+            filmStorage.removeLike(filmId, userId);
+        } finally {
+            filmsById.invalidate(filmId);
+        }
+    }
+
+    @Override
+    public void applyLikeChanges(Map<Integer, IntSet> addedLikes, Map<Integer, IntSet> removedLikes) {
+        try {
+            filmStorage.applyLikeChanges(addedLikes, removedLikes);
+        } finally {
+            addedLikes.keySet().forEach(filmsById::invalidate);
+            removedLikes.keySet().forEach(filmsById::invalidate);
+        }
+    }
+
+    @Override
+    public Map<Integer, IntSet> getLikedUsersIdsByFilm() {
+        return filmStorage.getLikedUsersIdsByFilm();
+    }
+
+    @Override
+    public long getFilmVersion(int id) {
+        return filmStorage.getFilmVersion(id);
+    }
+
+    @Override
+    public long getFilmsVersion() {
+        return filmStorage.getFilmsVersion();
+    }
+
+    public CacheStats getStats() {
+        return filmsById.getStats();
+    }
+}
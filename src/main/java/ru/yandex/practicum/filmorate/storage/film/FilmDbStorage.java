@@ -1,33 +1,125 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.Mpa;
-import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.search.SearchIndex;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.BatchUpdateException;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 @Component("filmDbStorage")
 @RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
+    private static final String FILMS_SELECT = "SELECT f.film_id, " +
+            "f.film_name, " +
+            "f.film_description, " +
+            "f.release_date, " +
+            "f.duration, " +
+            "f.mpa_id, " +
+            "f.likes_count " +
+            "FROM films f ";
+    private static final String INSERT_LIKE = "INSERT INTO liked (user_id, film_id) " +
+            "SELECT u.user_id, f.film_id " +
+            "FROM users u, films f " +
+            "WHERE u.user_id = ? " +
+            "AND f.film_id = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM liked WHERE user_id = ? AND film_id = ?)";
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final int CHILD_BATCH_SIZE = 1000;
     private final JdbcTemplate jdbcTemplate;
-    private final MpaDbStorage mpaDbStorage;
+    private final ReferenceDataCache referenceDataCache;
+    private final PopularityIndex popularityIndex = new PopularityIndex();
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final FilmFilterIndex filterIndex = new FilmFilterIndex();
+    private final LikeCounters likeCounters = new LikeCounters();
+    private final LongAdder filmsVersion = new LongAdder();
+
+    @PostConstruct
+    public void rebuildIndexes() {
+        recountLikes();
+        rebuildPopularityIndex();
+        rebuildSearchIndex();
+        rebuildFilterIndex();
+    }
+
+    /**
+     * Restores likes counts whose deltas were not folded before the previous shutdown.
+     */
+    public void recountLikes() {
+        jdbcTemplate.update("UPDATE films f " +
+                "SET likes_count = (SELECT COUNT(*) FROM liked l WHERE l.film_id = f.film_id)");
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.counters.fold-interval-ms:1000}")
+    @PreDestroy
+    public void foldLikeCounters() {
+        likeCounters.fold(deltas -> jdbcTemplate.batchUpdate(
+                "UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?",
+                deltas.entrySet()
+                        .stream()
+                        .map(e -> new Object[]{e.getValue(), e.getKey()})
+                        .collect(Collectors.toList())));
+    }
+
+    public void rebuildPopularityIndex() {
+        popularityIndex.clear();
+        jdbcTemplate.query("SELECT film_id, likes_count FROM films", rs -> {
+            popularityIndex.put(rs.getInt("film_id"), rs.getInt("likes_count"));
+        });
+    }
+
+    public void rebuildSearchIndex() {
+        searchIndex.clear();
+        jdbcTemplate.query("SELECT film_id, film_name, film_description FROM films", rs -> {
+            searchIndex.put(rs.getInt("film_id"), rs.getString("film_name"), rs.getString("film_description"));
+        });
+    }
+
+    public void rebuildFilterIndex() {
+        filterIndex.clear();
+        Map<Integer, IntSet.Builder> genresById = new HashMap<>();
+        jdbcTemplate.query("SELECT film_id, genre_id FROM film_genres ORDER BY film_id, genre_id", rs -> {
+            genresById.computeIfAbsent(rs.getInt("film_id"), id -> new IntSet.Builder())
+                    .add(rs.getInt("genre_id"));
+        });
+        jdbcTemplate.query("SELECT film_id, release_date FROM films", rs -> {
+            int id = rs.getInt("film_id");
+            IntSet.Builder genreIds = genresById.get(id);
+            filterIndex.put(id,
+                    Objects.requireNonNull(rs.getDate("release_date")).toLocalDate().getYear(),
+                    genreIds == null ? IntSet.EMPTY : genreIds.build());
+        });
+    }
 
     @Override
     public Film addFilm(Film film) {
-        if (film == null || mpaDbStorage.getMpaById(film.getMpa().getId()) == null) {
+        if (film == null) {
             throw new ValidationException();
         }
+        checkReferences(List.of(film));
         KeyHolder holder = new GeneratedKeyHolder();
         PreparedStatementCreator prepareStatement = connection -> {
             PreparedStatement ps = connection.prepareStatement("INSERT INTO films " +
@@ -47,19 +139,80 @@ public class FilmDbStorage implements FilmStorage {
         };
         jdbcTemplate.update(prepareStatement, holder);
         int id = Objects.requireNonNull(holder.getKey()).intValue();
-        Set<Genre> genres = film.getGenres();
-        if (genres == null) {
-            genres = new HashSet<>();
-        }
+        Set<Genre> genres = resolveGenres(film.getGenres());
         genres.forEach(g -> jdbcTemplate.update("INSERT INTO film_genres " +
                         "(film_id, " +
                         "genre_id) " +
                         "VALUES(?,?)",
                 id,
                 g.getId()));
+        popularityIndex.put(id, 0);
+        searchIndex.put(id, film.getName(), film.getDescription());
+        filterIndex.put(id, film.getReleaseDate().getYear(), genreIds(genres));
+        filmsVersion.increment();
         return getFilmById(id);
     }
 
+    @Override
+    @Transactional
+    public List<Film> addFilms(List<Film> films) {
+        if (films == null || films.stream().anyMatch(Objects::isNull)) {
+            throw new ValidationException();
+        }
+        checkReferences(films);
+        String sqlQuery = "INSERT INTO films " +
+                "(film_name," +
+                "film_description," +
+                "release_date," +
+                "duration," +
+                "mpa_id) " +
+                "VALUES (?,?,?,?,?)";
+        List<Integer> ids = jdbcTemplate.execute(
+                (PreparedStatementCreator) connection -> connection.prepareStatement(sqlQuery, new String[]{"film_id"}),
+                ps -> {
+                    for (Film film : films) {
+                        ps.setString(1, film.getName());
+                        ps.setString(2, film.getDescription());
+                        ps.setString(3, film.getReleaseDate().toString());
+                        ps.setLong(4, film.getDuration());
+                        ps.setInt(5, film.getMpa().getId());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    List<Integer> generatedIds = new ArrayList<>(films.size());
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        while (keys.next()) {
+                            generatedIds.add(keys.getInt(1));
+                        }
+                    }
+                    return generatedIds;
+                });
+        if (ids == null || ids.size() != films.size()) {
+            throw new IllegalStateException("Не удалось получить идентификаторы добавленных фильмов");
+        }
+        List<Film> addedFilms = new ArrayList<>(films.size());
+        List<Object[]> filmGenres = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            int id = ids.get(i);
+            Film film = films.get(i);
+            Set<Genre> genres = resolveGenres(film.getGenres());
+            genres.forEach(g -> filmGenres.add(new Object[]{id, g.getId()}));
+            addedFilms.add(film.withId(id)
+                    .withMpa(referenceDataCache.getMpaById(film.getMpa().getId()))
+                    .withLikesCount(0)
+                    .withLikedUsersIds(IntSet.EMPTY)
+                    .withGenres(genres));
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES(?,?)", filmGenres);
+        ids.forEach(id -> popularityIndex.put(id, 0));
+        addedFilms.forEach(f -> {
+            searchIndex.put(f.getId(), f.getName(), f.getDescription());
+            filterIndex.put(f.getId(), f.getReleaseDate().getYear(), genreIds(f.getGenres()));
+        });
+        afterCommit(filmsVersion::increment);
+        return addedFilms;
+    }
+
     @Override
     public void removeFilm(int id) {
         String sqlQuery = "DELETE FROM liked WHERE film_id = ?";
@@ -68,180 +221,387 @@ public class FilmDbStorage implements FilmStorage {
         jdbcTemplate.update(sqlQuery, id);
         sqlQuery = "DELETE FROM films WHERE film_id = ?";
         jdbcTemplate.update(sqlQuery, id);
+        popularityIndex.remove(id);
+        likeCounters.remove(id);
+        searchIndex.remove(id);
+        filterIndex.remove(id);
+        filmsVersion.increment();
     }
 
     @Override
+    @Transactional
     public Film updateFilm(Film film) {
-        if (film == null || mpaDbStorage.getMpaById(film.getMpa().getId()) == null) {
+        if (film == null) {
             throw new ValidationException();
         }
+        checkReferences(List.of(film));
         String sql = "UPDATE films " +
                 "SET film_name = ?, " +
                 "film_description = ?, " +
                 "release_date = ?," +
                 "duration = ?," +
                 "mpa_id = ?," +
-                "likes_count = ? " +
+                "version = version + 1 " +
                 "WHERE film_id = ?";
         int likesCount = 0;
         if (film.getLikedUsersIds() != null) {
             likesCount = film.getLikedUsersIds().size();
         }
-        jdbcTemplate.update(sql,
+        int updated = jdbcTemplate.update(sql,
                 film.getName(),
                 film.getDescription(),
                 film.getReleaseDate().toString(),
                 film.getDuration(),
                 film.getMpa().getId(),
-                likesCount,
                 film.getId());
+        if (updated == 0) {
+            throw new NotFoundException("Фильм с id = " + film.getId() + " не найден");
+        }
         sql = "DELETE FROM film_genres WHERE film_id = ?";
         jdbcTemplate.update(sql, film.getId());
-        Set<Genre> genres = film.getGenres();
-        if (genres == null) {
-            genres = new HashSet<>();
-        }
+        Set<Genre> genres = resolveGenres(film.getGenres());
         String finalSql = "INSERT INTO film_genres (film_id, genre_id) VALUES(?,?)";
         genres.forEach(g -> jdbcTemplate.update(finalSql, film.getId(), g.getId()));
         sql = "DELETE FROM liked WHERE film_id = ?";
-        jdbcTemplate.update(sql, film.getId());
-        Set<Integer> likeUsers = film.getLikedUsersIds();
-        if (likeUsers == null) {
-            likeUsers = new HashSet<>();
+        int deletedLikes = jdbcTemplate.update(sql, film.getId());
+        if (film.getLikedUsersIds() != null) {
+            String finalSql1 = "INSERT INTO liked (user_id, film_id) VALUES(?,?)";
+            film.getLikedUsersIds().forEachInt(l -> jdbcTemplate.update(finalSql1, l, film.getId()));
         }
-        String finalSql1 = "INSERT INTO liked (user_id, film_id) VALUES(?,?)";
-        likeUsers.forEach(l -> jdbcTemplate.update(finalSql1, l, film.getId()));
-        return getFilmById(film.getId());
+        // likes_count is only ever shifted by deltas, so a concurrent fold cannot stack a stale delta
+        // on top of an overwritten count.
+        int likesDelta = likesCount - deletedLikes;
+        afterCommit(() -> {
+            if (likesDelta != 0) {
+                likeCounters.add(film.getId(), likesDelta);
+                popularityIndex.increment(film.getId(), likesDelta);
+            }
+            searchIndex.put(film.getId(), film.getName(), film.getDescription());
+            filterIndex.put(film.getId(), film.getReleaseDate().getYear(), genreIds(genres));
+            filmsVersion.increment();
+        });
+        return getFilmById(film.getId()).withLikesCount(likesCount);
     }
 
     @Override
     public Film getFilmById(int id) {
-        String sqlQuery = "SELECT f.film_id, " +
-                "f.film_name, " +
-                "f.film_description, " +
-                "f.release_date, " +
-                "f.duration, " +
-                "f.mpa_id, " +
-                "f.likes_count," +
-                "m.mpa_name, " +
-                "m.mpa_description, " +
-                "l.user_id, " +
-                "fg.genre_id, " +
-                "g.genre_name " +
-                "FROM films f " +
-                "LEFT JOIN mpa m ON f.mpa_id = m.mpa_id " +
-                "LEFT JOIN liked l ON f.film_id = l.film_id " +
-                "LEFT JOIN film_genres fg ON f.film_id = fg.film_id " +
-                "LEFT JOIN genre g ON fg.genre_id = g.genre_id " +
-                "WHERE f.film_id = ?";
-        SqlRowSet filmSet = jdbcTemplate.queryForRowSet(sqlQuery, id);
-        if (!filmSet.next()) {
+        String sqlQuery = FILMS_SELECT + "WHERE f.film_id = ?";
+        List<Film> films = jdbcTemplate.query(sqlQuery, this::mapFilm, id);
+        if (films.isEmpty()) {
             throw new NotFoundException("Фильм с id = " + id + " не найден");
         }
-        Mpa mpa = new Mpa(filmSet.getInt("mpa_id"),
-                filmSet.getString("mpa_name"),
-                filmSet.getString("mpa_description"));
-        filmSet.beforeFirst();
-        Set<Integer> likedUsersIds = new HashSet<>();
-        Set<Genre> tmpGenreSet = new HashSet<>();
-        while (filmSet.next()) {
-            int userId = filmSet.getInt("user_id");
-            int genreId = filmSet.getInt("genre_id");
-            if (userId != 0) {
-                likedUsersIds.add(userId);
-            }
-            if (genreId != 0) {
-                tmpGenreSet.add(new Genre(filmSet.getInt("genre_id"), filmSet.getString("genre_name")));
-            }
-        }
-        Set<Genre> genreSet = new HashSet<>();
-        tmpGenreSet
-                .stream()
-                .sorted(Comparator.comparing(Genre::getId, Comparator.naturalOrder()))
-                .forEach(genreSet::add);
-        filmSet.first();
-        return Film.builder()
-                .id(filmSet.getInt("film_id"))
-                .name(filmSet.getString("film_name"))
-                .description(filmSet.getString("film_description"))
-                .releaseDate(Objects.requireNonNull(filmSet.getDate("release_date")).toLocalDate())
-                .duration(filmSet.getLong("duration"))
-                .mpa(mpa)
-                .likesCount(filmSet.getInt("likes_count"))
-                .likedUsersIds(likedUsersIds)
-                .genres(genreSet)
-                .build();
+        return withGenresAndLikes(films).get(0);
+    }
+
+    @Override
+    public boolean filmExists(int id) {
+        Integer films = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films WHERE film_id = ?",
+                Integer.class,
+                id);
+        return films != null && films > 0;
     }
 
     @Override
     public List<Film> getFilms() {
-        String sqlQuery = "SELECT f.film_id, " +
-                "f.film_name, " +
-                "f.film_description, " +
-                "f.release_date, " +
-                "f.duration, " +
-                "f.mpa_id, " +
-                "f.likes_count," +
-                "m.mpa_name, " +
-                "m.mpa_description, " +
-                "l.user_id, " +
-                "fg.genre_id, " +
-                "g.genre_name " +
-                "FROM films f " +
-                "LEFT JOIN mpa m ON f.mpa_id = m.mpa_id " +
-                "LEFT JOIN liked l ON f.film_id = l.film_id " +
-                "LEFT JOIN film_genres fg ON f.film_id = fg.film_id " +
-                "LEFT JOIN genre g ON fg.genre_id = g.genre_id";
-        SqlRowSet filmSet = jdbcTemplate.queryForRowSet(sqlQuery);
+        String sqlQuery = FILMS_SELECT + "ORDER BY f.film_id";
+        List<Film> films = jdbcTemplate.query(sqlQuery, this::mapFilm);
+        return withGenresAndLikes(films);
+    }
+
+    @Override
+    public List<Film> getFilms(int after, int limit) {
+        String sqlQuery = FILMS_SELECT +
+                "WHERE f.film_id > ? " +
+                "ORDER BY f.film_id " +
+                "LIMIT ?";
+        List<Film> films = jdbcTemplate.query(sqlQuery, this::mapFilm, after, limit);
+        return withGenresAndLikes(films);
+    }
+
+    @Override
+    public List<Film> getMostPopularFilms(int count) {
+        return getFilmsByIds(popularityIndex.top(count));
+    }
+
+    @Override
+    public List<Film> getMostPopularFilms(int count, Integer genreId, Integer year) {
+        if (genreId == null && year == null) {
+            return getMostPopularFilms(count);
+        }
+        if (genreId != null) {
+            referenceDataCache.getGenreById(genreId);
+        }
+        return getFilmsByIds(popularityIndex.top(count, filterIndex.match(genreId, year)));
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        return getFilmsByIds(searchIndex.search(query, count, this::getLikesCount));
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids) {
         Map<Integer, Film> filmsById = new HashMap<>();
-        while (filmSet.next()) {
-            Film currFilm = filmsById.get(filmSet.getInt("film_id"));
-            if (currFilm == null) {
-                Mpa mpa = new Mpa(filmSet.getInt("mpa_id"),
-                        filmSet.getString("mpa_name"),
-                        filmSet.getString("mpa_description"));
-                currFilm = Film.builder()
-                        .id(filmSet.getInt("film_id"))
-                        .name(filmSet.getString("film_name"))
-                        .description(filmSet.getString("film_description"))
-                        .releaseDate(Objects.requireNonNull(filmSet.getDate("release_date")).toLocalDate())
-                        .duration(filmSet.getLong("duration"))
-                        .mpa(mpa)
-                        .likesCount(filmSet.getInt("likes_count"))
-                        .likedUsersIds(new HashSet<>())
-                        .genres(new HashSet<>())
-                        .build();
+        for (int from = 0; from < ids.size(); from += CHILD_BATCH_SIZE) {
+            List<Integer> batch = ids.subList(from, Math.min(from + CHILD_BATCH_SIZE, ids.size()));
+            String sqlQuery = FILMS_SELECT +
+                    "WHERE f.film_id IN (" + String.join(",", Collections.nCopies(batch.size(), "?")) + ")";
+            jdbcTemplate.query(sqlQuery, this::mapFilm, batch.toArray())
+                    .forEach(f -> filmsById.put(f.getId(), f));
+        }
+        List<Film> films = ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return withGenresAndLikes(films);
+    }
+
+    @Override
+    public void addLike(int filmId, int userId) {
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(INSERT_LIKE, userId, filmId, userId, filmId);
+        } catch (DuplicateKeyException e) {
+            // A concurrent identical like passed the NOT EXISTS guard first and is counted there.
+            inserted = 0;
+        }
+        if (inserted == 0) {
+            checkLikeParticipants(filmId, userId);
+            return;
+        }
+        likeCounters.add(filmId, 1);
+        popularityIndex.increment(filmId, 1);
+        filmsVersion.increment();
+    }
+
+    @Override
+    public void removeLike(int filmId, int userId) {
+        String sqlQuery = "DELETE FROM liked WHERE user_id = ? AND film_id = ?";
+        if (jdbcTemplate.update(sqlQuery, userId, filmId) == 0) {
+            checkLikeParticipants(filmId, userId);
+            return;
+        }
+        likeCounters.add(filmId, -1);
+        popularityIndex.increment(filmId, -1);
+        filmsVersion.increment();
+    }
+
+    @Override
+    @Transactional
+    public void applyLikeChanges(Map<Integer, IntSet> addedLikes, Map<Integer, IntSet> removedLikes) {
+        List<Integer> likedFilmsIds = new ArrayList<>();
+        List<Object[]> likes = new ArrayList<>();
+        addedLikes.forEach((filmId, usersIds) -> usersIds.forEachInt(userId -> {
+            likedFilmsIds.add(filmId);
+            likes.add(new Object[]{userId, filmId, userId, filmId});
+        }));
+        int[] inserted = insertLikes(likes);
+        List<Integer> unlikedFilmsIds = new ArrayList<>();
+        List<Object[]> unlikes = new ArrayList<>();
+        removedLikes.forEach((filmId, usersIds) -> usersIds.forEachInt(userId -> {
+            unlikedFilmsIds.add(filmId);
+            unlikes.add(new Object[]{userId, filmId});
+        }));
+        int[] deleted = jdbcTemplate.batchUpdate("DELETE FROM liked WHERE user_id = ? AND film_id = ?", unlikes);
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (int i = 0; i < inserted.length; i++) {
+            deltas.merge(likedFilmsIds.get(i), inserted[i], Integer::sum);
+        }
+        for (int i = 0; i < deleted.length; i++) {
+            deltas.merge(unlikedFilmsIds.get(i), -deleted[i], Integer::sum);
+        }
+        afterCommit(() -> {
+            deltas.forEach((filmId, delta) -> {
+                if (delta != 0) {
+                    likeCounters.add(filmId, delta);
+                    popularityIndex.increment(filmId, delta);
+                }
+            });
+            filmsVersion.increment();
+        });
+    }
+
+    @Override
+    public Map<Integer, IntSet> getLikedUsersIdsByFilm() {
+        Map<Integer, IntSet.Builder> likesById = new HashMap<>();
+        String sqlQuery = "SELECT film_id, user_id FROM liked ORDER BY film_id, user_id";
+        jdbcTemplate.query(sqlQuery, rs -> {
+            likesById.computeIfAbsent(rs.getInt("film_id"), id -> new IntSet.Builder())
+                    .add(rs.getInt("user_id"));
+        });
+        Map<Integer, IntSet> likedUsersIdsByFilm = new HashMap<>();
+        likesById.forEach((id, builder) -> likedUsersIdsByFilm.put(id, builder.build()));
+        return likedUsersIdsByFilm;
+    }
+
+    @Override
+    public long getFilmVersion(int id) {
+        List<Long> versions = jdbcTemplate.queryForList("SELECT version FROM films WHERE film_id = ?", Long.class, id);
+        if (versions.isEmpty()) {
+            throw new NotFoundException("Фильм с id = " + id + " не найден");
+        }
+        return versions.get(0) + likeCounters.getChanges(id);
+    }
+
+    @Override
+    public long getFilmsVersion() {
+        return filmsVersion.sum();
+    }
+
+    /**
+     * Runs the action once the current transaction commits, so that versions never grow before
+     * the change they stand for is visible.
+     */
+    /**
+     * Inserts likes in one batch. H2 runs the rest of a batch after a failed row, so rows rejected
+     * only by the primary key, liked concurrently by someone else, count as not inserted.
+     */
+    private int[] insertLikes(List<Object[]> likes) {
+        if (likes.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.execute((ConnectionCallback<int[]>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_LIKE)) {
+                for (Object[] like : likes) {
+                    for (int i = 0; i < like.length; i++) {
+                        statement.setInt(i + 1, (Integer) like[i]);
+                    }
+                    statement.addBatch();
+                }
+                try {
+                    return statement.executeBatch();
+                } catch (BatchUpdateException e) {
+                    int[] inserted = e.getUpdateCounts();
+                    if (inserted.length != likes.size()) {
+                        throw e;
+                    }
+                    for (Throwable failure : e) {
+                        if (failure instanceof SQLException
+                                && !UNIQUE_VIOLATION.equals(((SQLException) failure).getSQLState())) {
+                            throw e;
+                        }
+                    }
+                    for (int i = 0; i < inserted.length; i++) {
+                        inserted[i] = Math.max(inserted[i], 0);
+                    }
+                    return inserted;
+                }
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
             }
-            int likeUserId = filmSet.getInt("user_id");
-            if (likeUserId != 0) {
-                Set<Integer> likes = currFilm.getLikedUsersIds();
-                likes.add(likeUserId);
-                currFilm = currFilm.withLikedUsersIds(likes);
+        });
+    }
+
+    /**
+     * Takes the count from the popularity index, which likes update before the counters are folded,
+     * so that a fold committing between reading the row and the pending delta is not seen twice.
+     */
+    private int mapLikesCount(ResultSet rs) throws SQLException {
+        Integer likesCount = popularityIndex.getLikesCount(rs.getInt("film_id"));
+        return likesCount != null
+                ? likesCount
+                : rs.getInt("likes_count") + likeCounters.getPending(rs.getInt("film_id"));
+    }
+
+    private int getLikesCount(int filmId) {
+        Integer likesCount = popularityIndex.getLikesCount(filmId);
+        return likesCount == null ? 0 : likesCount;
+    }
+
+    private void checkLikeParticipants(int filmId, int userId) {
+        if (!filmExists(filmId)) {
+            throw new NotFoundException("Фильм с id = " + filmId + " не найден");
+        }
+        Integer users = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE user_id = ?",
+                Integer.class,
+                userId);
+        if (users == null || users == 0) {
+            throw new NotFoundException("Пользователь с id = " + userId + " не найден");
+        }
+    }
+
+    private void checkReferences(List<Film> films) {
+        for (Film film : films) {
+            if (film.getMpa() == null) {
+                throw new ValidationException();
             }
-            int genreId = filmSet.getInt("genre_id");
-            if (genreId != 0) {
-                Genre genre = new Genre(genreId,
-                        filmSet.getString("genre_name"));
-                Set<Genre> genres = currFilm.getGenres();
-                genres.add(genre);
-                currFilm = currFilm.withGenres(genres);
+            referenceDataCache.getMpaById(film.getMpa().getId());
+            if (film.getGenres() != null) {
+                film.getGenres().forEach(g -> referenceDataCache.getGenreById(g.getId()));
             }
-            filmsById.put(currFilm.getId(), currFilm);
         }
-        return new ArrayList<>(filmsById.values());
     }
 
-    @Override
-    public List<Film> getMostPopularFilms(int count) {
-        List<Film> films = new ArrayList<>();
-        String sqlQuery = "SELECT film_id " +
-                "FROM films " +
-                "ORDER BY likes_count " +
-                "DESC LIMIT ?";
-        SqlRowSet filmsSet = jdbcTemplate.queryForRowSet(sqlQuery, count);
-        while (filmsSet.next()) {
-            films.add(getFilmById(filmsSet.getInt("film_id")));
+    private Set<Genre> resolveGenres(Set<Genre> genres) {
+        Set<Genre> resolvedGenres = new LinkedHashSet<>();
+        if (genres != null) {
+            genres.stream()
+                    .mapToInt(Genre::getId)
+                    .sorted()
+                    .forEach(id -> resolvedGenres.add(referenceDataCache.getGenreById(id)));
+        }
+        return resolvedGenres;
+    }
+
+    private static IntSet genreIds(Set<Genre> genres) {
+        return IntSet.copyOf(genres.stream().map(Genre::getId).collect(Collectors.toList()));
+    }
+
+    private Film mapFilm(ResultSet rs, int rowNum) throws SQLException {
+        return Film.builder()
+                .id(rs.getInt("film_id"))
+                .name(rs.getString("film_name"))
+                .description(rs.getString("film_description"))
+                .releaseDate(Objects.requireNonNull(rs.getDate("release_date")).toLocalDate())
+                .duration(rs.getLong("duration"))
+                .mpa(referenceDataCache.getMpaById(rs.getInt("mpa_id")))
+                .likesCount(mapLikesCount(rs))
+                .likedUsersIds(IntSet.EMPTY)
+                .genres(new LinkedHashSet<>())
+                .build();
+    }
+
+    private List<Film> withGenresAndLikes(List<Film> films) {
+        for (int from = 0; from < films.size(); from += CHILD_BATCH_SIZE) {
+            List<Film> batch = films.subList(from, Math.min(from + CHILD_BATCH_SIZE, films.size()));
+            loadGenresAndLikes(batch);
         }
         return films;
     }
+
+    private void loadGenresAndLikes(List<Film> films) {
+        Map<Integer, Film> filmsById = new HashMap<>();
+        films.forEach(f -> filmsById.put(f.getId(), f));
+        String inSql = String.join(",", Collections.nCopies(filmsById.size(), "?"));
+        Object[] ids = filmsById.keySet().toArray();
+        String sqlQuery = "SELECT film_id, genre_id " +
+                "FROM film_genres " +
+                "WHERE film_id IN (" + inSql + ") " +
+                "ORDER BY genre_id";
+        jdbcTemplate.query(sqlQuery, rs -> {
+            filmsById.get(rs.getInt("film_id"))
+                    .getGenres()
+                    .add(referenceDataCache.getGenreById(rs.getInt("genre_id")));
+        }, ids);
+        Map<Integer, IntSet.Builder> likesById = new HashMap<>();
+        sqlQuery = "SELECT film_id, user_id FROM liked WHERE film_id IN (" + inSql + ")";
+        jdbcTemplate.query(sqlQuery, rs -> {
+            likesById.computeIfAbsent(rs.getInt("film_id"), id -> new IntSet.Builder())
+                    .add(rs.getInt("user_id"));
+        }, ids);
+        films.replaceAll(f -> likesById.containsKey(f.getId())
+                ? f.withLikedUsersIds(likesById.get(f.getId()).build())
+                : f);
+    }
 }
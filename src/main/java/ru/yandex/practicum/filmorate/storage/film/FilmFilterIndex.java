@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.IntSet;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-genre and per-release-year bitmaps over film ids. Identity ids are dense, so they are used as
+ * bit ordinals directly, and a filter is an AND of at most two bitmaps.
+ */
+public class FilmFilterIndex {
+    private final Map<Integer, BitSet> filmsByGenre = new HashMap<>();
+    private final Map<Integer, BitSet> filmsByYear = new HashMap<>();
+    private final Map<Integer, Integer> yearById = new HashMap<>();
+    private final Map<Integer, IntSet> genresById = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(int filmId, int year, IntSet genreIds) {
+        lock.writeLock().lock();
+        try {
+            removeFilm(filmId);
+            filmsByYear.computeIfAbsent(year, y -> new BitSet()).set(filmId);
+            genreIds.forEachInt(genreId -> filmsByGenre.computeIfAbsent(genreId, g -> new BitSet()).set(filmId));
+            yearById.put(filmId, year);
+            genresById.put(filmId, genreIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int filmId) {
+        lock.writeLock().lock();
+        try {
+            removeFilm(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            filmsByGenre.clear();
+            filmsByYear.clear();
+            yearById.clear();
+            genresById.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a new bitmap of the films matching every given filter; a null filter matches any film.
+     */
+    public BitSet match(Integer genreId, Integer year) {
+        lock.readLock().lock();
+        try {
+            BitSet films = null;
+            if (genreId != null) {
+                films = copyOf(filmsByGenre.get(genreId));
+            }
+            if (year != null) {
+                BitSet filmsOfYear = filmsByYear.get(year);
+                if (films == null) {
+                    films = copyOf(filmsOfYear);
+                } else if (filmsOfYear == null) {
+                    films.clear();
+                } else {
+                    films.and(filmsOfYear);
+                }
+            }
+            if (films == null) {
+                films = new BitSet();
+                for (int filmId : yearById.keySet()) {
+                    films.set(filmId);
+                }
+            }
+            return films;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeFilm(int filmId) {
+        Integer year = yearById.remove(filmId);
+        if (year == null) {
+            return;
+        }
+        clearBit(filmsByYear, year, filmId);
+        genresById.remove(filmId).forEachInt(genreId -> clearBit(filmsByGenre, genreId, filmId));
+    }
+
+    private static void clearBit(Map<Integer, BitSet> bitmaps, int key, int filmId) {
+        BitSet films = bitmaps.get(key);
+        films.clear(filmId);
+        if (films.isEmpty()) {
+            bitmaps.remove(key);
+        }
+    }
+
+    private static BitSet copyOf(BitSet films) {
+        return films == null ? new BitSet() : (BitSet) films.clone();
+    }
+}
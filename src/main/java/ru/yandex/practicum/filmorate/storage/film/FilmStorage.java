@@ -1,19 +1,55 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
 
 import java.util.List;
+import java.util.Map;
 
 public interface FilmStorage {
     Film addFilm(Film film);
 
+    List<Film> addFilms(List<Film> films);
+
     void removeFilm(int id);
 
     Film updateFilm(Film film);
 
     Film getFilmById(int id);
 
+    boolean filmExists(int id);
+
     List<Film> getFilms();
 
+    List<Film> getFilms(int after, int limit);
+
+    List<Film> getFilmsByIds(List<Integer> ids);
+
     List<Film> getMostPopularFilms(int count);
+
+    List<Film> getMostPopularFilms(int count, Integer genreId, Integer year);
+
+    List<Film> searchFilms(String query, int count);
+
+    void addLike(int filmId, int userId);
+
+    void removeLike(int filmId, int userId);
+
+    /**
+     * Applies likes and unlikes keyed by film id. Unlike single like calls, it is idempotent and
+     * skips changes whose film or user no longer exists.
+     */
+    void applyLikeChanges(Map<Integer, IntSet> addedLikes, Map<Integer, IntSet> removedLikes);
+
+    Map<Integer, IntSet> getLikedUsersIdsByFilm();
+
+    /**
+     * Version that grows on every change of the film, its likes included.
+     */
+    long getFilmVersion(int id);
+
+    /**
+     * Version that grows on every change of any film; it tags lists such as the most popular films.
+     */
+    long getFilmsVersion();
 }
@@ -1,59 +1,292 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.storage.search.SearchIndex;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
+/**
+ * Stored films are immutable snapshots without likes. The likers of each film are a mutable set
+ * guarded by the film's own monitor, so a like costs O(1) instead of a copy of the set; readers get
+ * an immutable copy that is rebuilt only after the set changes.
+ */
 @Component("inMemoryFilmStorage")
 public class InMemoryFilmStorage implements FilmStorage {
-    private static final Comparator<Film> filmComparator = Comparator
-            .comparing(Film::getLikesCount, Comparator.reverseOrder())
-            .thenComparing(Film::getId);
-    private final Map<Integer, Film> filmsById = new HashMap<>();
-
-    private int id = 0;
+    private final Map<Integer, Film> filmsById = new ConcurrentHashMap<>();
+    private final Map<Integer, FilmLikes> likesById = new ConcurrentHashMap<>();
+    private final PopularityIndex popularityIndex = new PopularityIndex();
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final FilmFilterIndex filterIndex = new FilmFilterIndex();
+    private final Map<Integer, Long> versionsById = new ConcurrentHashMap<>();
+    private final LongAdder filmsVersion = new LongAdder();
+    private final AtomicInteger lastId = new AtomicInteger();
 
     @Override
     public Film addFilm(Film film) {
-        film = film.withId(++id);
-        film = film.withLikedUsersIds(new HashSet<>());
+        int id = lastId.incrementAndGet();
+        film = film.withId(id);
+        film = film.withLikedUsersIds(IntSet.EMPTY);
+        film = film.withLikesCount(0);
+        likesById.put(id, new FilmLikes());
         filmsById.put(id, film);
+        popularityIndex.put(id, 0);
+        searchIndex.put(id, film.getName(), film.getDescription());
+        filterIndex.put(id, film.getReleaseDate().getYear(), genreIds(film));
+        versionsById.put(id, 0L);
+        filmsVersion.increment();
         return film;
     }
 
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        return films.stream()
+                .map(this::addFilm)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public void removeFilm(int id) {
-        filmsById.remove(id);
+        filmsById.computeIfPresent(id, (filmId, film) -> {
+            FilmLikes likes = likesById.remove(filmId);
+            if (likes != null) {
+                likes.markRemoved();
+            }
+            popularityIndex.remove(filmId);
+            searchIndex.remove(filmId);
+            filterIndex.remove(filmId);
+            versionsById.remove(filmId);
+            return null;
+        });
+        filmsVersion.increment();
     }
 
     @Override
     public Film updateFilm(Film film) {
-        if (film.getLikedUsersIds() == null) {
-            film = film.withLikedUsersIds(new HashSet<>());
+        IntSet likedUsersIds = film.getLikedUsersIds() == null ? IntSet.EMPTY : film.getLikedUsersIds();
+        Film updatedFilm = film.withLikedUsersIds(likedUsersIds).withLikesCount(likedUsersIds.size());
+        Film storedFilm = filmsById.computeIfPresent(film.getId(), (id, oldFilm) -> {
+            FilmLikes likes = likesById.get(id);
+            synchronized (likes) {
+                likes.replace(likedUsersIds);
+                popularityIndex.put(id, likedUsersIds.size());
+            }
+            searchIndex.put(id, updatedFilm.getName(), updatedFilm.getDescription());
+            filterIndex.put(id, updatedFilm.getReleaseDate().getYear(), genreIds(updatedFilm));
+            versionsById.merge(id, 1L, Long::sum);
+            return updatedFilm.withLikedUsersIds(IntSet.EMPTY).withLikesCount(0);
+        });
+        if (storedFilm == null) {
+            throw new NotFoundException("Фильм с id = " + film.getId() + " не найден");
         }
-        filmsById.put(film.getId(), film);
-        return film;
+        filmsVersion.increment();
+        return updatedFilm;
     }
 
     @Override
     public Film getFilmById(int id) {
-        return filmsById.get(id);
+        Film film = filmsById.get(id);
+        return film == null ? null : withLikes(film);
+    }
+
+    @Override
+    public boolean filmExists(int id) {
+        return filmsById.containsKey(id);
     }
 
     @Override
     public List<Film> getFilms() {
-        return new ArrayList<>(filmsById.values());
+        return filmsById.values()
+                .stream()
+                .map(this::withLikes)
+                .collect(Collectors.toList());
     }
 
     @Override
-    public List<Film> getMostPopularFilms(int count) {
+    public List<Film> getFilms(int after, int limit) {
         return filmsById
                 .values()
                 .stream()
-                .sorted(filmComparator)
-                .limit(count)
+                .filter(f -> f.getId() > after)
+                .sorted(Comparator.comparing(Film::getId))
+                .limit(limit)
+                .map(this::withLikes)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        return getFilmsByIds(searchIndex.search(query, count, id -> {
+            Integer likesCount = popularityIndex.getLikesCount(id);
+            return likesCount == null ? 0 : likesCount;
+        }));
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids) {
+        return ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .map(this::withLikes)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> getMostPopularFilms(int count) {
+        return getFilmsByIds(popularityIndex.top(count));
+    }
+
+    @Override
+    public List<Film> getMostPopularFilms(int count, Integer genreId, Integer year) {
+        if (genreId == null && year == null) {
+            return getMostPopularFilms(count);
+        }
+        return getFilmsByIds(popularityIndex.top(count, filterIndex.match(genreId, year)));
+    }
+
+    @Override
+    public void addLike(int filmId, int userId) {
+        changeLikes(filmId, IntSet.of(userId), true);
+    }
+
+    @Override
+    public void removeLike(int filmId, int userId) {
+        changeLikes(filmId, IntSet.of(userId), false);
+    }
+
+    @Override
+    public void applyLikeChanges(Map<Integer, IntSet> addedLikes, Map<Integer, IntSet> removedLikes) {
+        addedLikes.forEach((filmId, usersIds) -> updateLikes(filmId, usersIds, true));
+        removedLikes.forEach((filmId, usersIds) -> updateLikes(filmId, usersIds, false));
+    }
+
+    @Override
+    public Map<Integer, IntSet> getLikedUsersIdsByFilm() {
+        Map<Integer, IntSet> likedUsersIdsByFilm = new HashMap<>();
+        likesById.forEach((id, likes) -> {
+            IntSet likedUsersIds = likes.snapshot();
+            if (!likedUsersIds.isEmpty()) {
+                likedUsersIdsByFilm.put(id, likedUsersIds);
+            }
+        });
+        return likedUsersIdsByFilm;
+    }
+
+    @Override
+    public long getFilmVersion(int id) {
+        Long version = versionsById.get(id);
+        if (version == null) {
+            throw new NotFoundException("Фильм с id = " + id + " не найден");
+        }
+        return version;
+    }
+
+    @Override
+    public long getFilmsVersion() {
+        return filmsVersion.sum();
+    }
+
+    private static IntSet genreIds(Film film) {
+        if (film.getGenres() == null) {
+            return IntSet.EMPTY;
+        }
+        return IntSet.copyOf(film.getGenres().stream().map(Genre::getId).collect(Collectors.toList()));
+    }
+
+    private Film withLikes(Film film) {
+        FilmLikes likes = likesById.get(film.getId());
+        IntSet likedUsersIds = likes == null ? IntSet.EMPTY : likes.snapshot();
+        return film.withLikedUsersIds(likedUsersIds).withLikesCount(likedUsersIds.size());
+    }
+
+    private void changeLikes(int filmId, IntSet usersIds, boolean add) {
+        if (!updateLikes(filmId, usersIds, add)) {
+            throw new NotFoundException("Фильм с id = " + filmId + " не найден");
+        }
+    }
+
+    private boolean updateLikes(int filmId, IntSet usersIds, boolean add) {
+        FilmLikes likes = likesById.get(filmId);
+        if (likes == null) {
+            return false;
+        }
+        synchronized (likes) {
+            if (likes.removed) {
+                return false;
+            }
+            int delta = add ? likes.addAll(usersIds) : -likes.removeAll(usersIds);
+            if (delta != 0) {
+                popularityIndex.increment(filmId, delta);
+                versionsById.merge(filmId, 1L, Long::sum);
+                filmsVersion.increment();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Likers of one film. Changes hold the monitor; {@link #snapshot} is read without it.
+     */
+    private static class FilmLikes {
+        private final Set<Integer> usersIds = new HashSet<>();
+        private volatile IntSet snapshot = IntSet.EMPTY;
+        private boolean removed;
+
+        private int addAll(IntSet ids) {
+            int added = 0;
+            for (int i = 0; i < ids.size(); i++) {
+                if (usersIds.add(ids.get(i))) {
+                    added++;
+                }
+            }
+            if (added > 0) {
+                snapshot = null;
+            }
+            return added;
+        }
+
+        private int removeAll(IntSet ids) {
+            int removedCount = 0;
+            for (int i = 0; i < ids.size(); i++) {
+                if (usersIds.remove(ids.get(i))) {
+                    removedCount++;
+                }
+            }
+            if (removedCount > 0) {
+                snapshot = null;
+            }
+            return removedCount;
+        }
+
+        private void replace(IntSet ids) {
+            usersIds.clear();
+            ids.forEachInt(usersIds::add);
+            snapshot = ids;
+        }
+
+        private synchronized void markRemoved() {
+            removed = true;
+        }
+
+        private IntSet snapshot() {
+            IntSet likedUsersIds = snapshot;
+            if (likedUsersIds == null) {
+                synchronized (this) {
+                    likedUsersIds = snapshot;
+                    if (likedUsersIds == null) {
+                        likedUsersIds = IntSet.copyOf(usersIds);
+                        snapshot = likedUsersIds;
+                    }
+                }
+            }
+            return likedUsersIds;
+        }
+    }
+}
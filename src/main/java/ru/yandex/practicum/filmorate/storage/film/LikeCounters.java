@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Likes count changes not yet written to the films table, kept in one {@link LongAdder} per film
+ * so that concurrent likes of a film update different cells instead of one row. Counters are never
+ * reset: the written part of each total is tracked separately, so an increment racing with
+ * {@link #fold} is written by the next fold rather than lost.
+ */
+public class LikeCounters {
+    private final Map<Integer, Counter> countersById = new ConcurrentHashMap<>();
+
+    public void add(int filmId, int delta) {
+        Counter counter = countersById.get(filmId);
+        if (counter == null) {
+            counter = countersById.computeIfAbsent(filmId, id -> new Counter());
+        }
+        counter.total.add(delta);
+        counter.changes.increment();
+    }
+
+    public int getPending(int filmId) {
+        Counter counter = countersById.get(filmId);
+        return counter == null ? 0 : (int) counter.getPending();
+    }
+
+    /**
+     * Number of changes made to the film's likes since startup; it only grows.
+     */
+    public long getChanges(int filmId) {
+        Counter counter = countersById.get(filmId);
+        return counter == null ? 0 : counter.changes.sum();
+    }
+
+    public synchronized void remove(int filmId) {
+        countersById.remove(filmId);
+    }
+
+    /**
+     * Passes the pending deltas, ordered by film id, to the writer and marks them written once it
+     * returns normally.
+     */
+    public synchronized void fold(Consumer<Map<Integer, Long>> writer) {
+        Map<Integer, Long> deltas = new TreeMap<>();
+        countersById.forEach((id, counter) -> {
+            long delta = counter.getPending();
+            if (delta != 0) {
+                deltas.put(id, delta);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+        writer.accept(deltas);
+        deltas.forEach((id, delta) -> {
+            Counter counter = countersById.get(id);
+            if (counter != null) {
+                counter.written += delta;
+            }
+        });
+    }
+
+    private static class Counter {
+        private final LongAdder total = new LongAdder();
+        private final LongAdder changes = new LongAdder();
+        private volatile long written;
+
+        private long getPending() {
+            return total.sum() - written;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Films ordered by (likes desc, id asc). Each entry is packed into one long whose natural order
+ * is the ranking order, so top-N is a walk over the head of a skip list: O(N + log F).
+ */
+public class PopularityIndex {
+    private static final int SELECTIVE_FILTER_RATIO = 16;
+    private final ConcurrentSkipListSet<Long> ranking = new ConcurrentSkipListSet<>();
+    private final Map<Integer, Integer> likesById = new ConcurrentHashMap<>();
+
+    public void put(int filmId, int likesCount) {
+        likesById.compute(filmId, (id, oldLikesCount) -> {
+            ranking.add(rankKey(id, likesCount));
+            if (oldLikesCount != null && oldLikesCount != likesCount) {
+                ranking.remove(rankKey(id, oldLikesCount));
+            }
+            return likesCount;
+        });
+    }
+
+    public void increment(int filmId, int delta) {
+        likesById.computeIfPresent(filmId, (id, oldLikesCount) -> {
+            int likesCount = oldLikesCount + delta;
+            ranking.add(rankKey(id, likesCount));
+            ranking.remove(rankKey(id, oldLikesCount));
+            return likesCount;
+        });
+    }
+
+    public void remove(int filmId) {
+        likesById.computeIfPresent(filmId, (id, oldLikesCount) -> {
+            ranking.remove(rankKey(id, oldLikesCount));
+            return null;
+        });
+    }
+
+    public void clear() {
+        likesById.clear();
+        ranking.clear();
+    }
+
+    public Integer getLikesCount(int filmId) {
+        return likesById.get(filmId);
+    }
+
+    public List<Integer> top(int count) {
+        return top(count, id -> true);
+    }
+
+    /**
+     * Top films among the given ones. When the filter keeps few films their rank keys are sorted
+     * directly; otherwise the ranking is walked from the head, skipping films outside the filter.
+     */
+    public List<Integer> top(int count, BitSet filmIds) {
+        int matches = filmIds.cardinality();
+        if ((long) matches * SELECTIVE_FILTER_RATIO > likesById.size()) {
+            return top(count, filmIds::get);
+        }
+        long[] keys = new long[matches];
+        int size = 0;
+        for (int id = filmIds.nextSetBit(0); id >= 0; id = filmIds.nextSetBit(id + 1)) {
+            Integer likesCount = likesById.get(id);
+            if (likesCount != null) {
+                keys[size++] = rankKey(id, likesCount);
+            }
+        }
+        Arrays.sort(keys, 0, size);
+        List<Integer> ids = new ArrayList<>(Math.min(count, size));
+        for (int i = 0; i < size && ids.size() < count; i++) {
+            ids.add((int) keys[i]);
+        }
+        return ids;
+    }
+
+    private List<Integer> top(int count, IntPredicate filter) {
+        List<Integer> ids = new ArrayList<>(Math.min(count, likesById.size()));
+        Iterator<Long> keys = ranking.iterator();
+        while (ids.size() < count && keys.hasNext()) {
+            long key = keys.next();
+            int id = (int) key;
+            Integer likesCount = likesById.get(id);
+            if (likesCount != null && rankKey(id, likesCount) == key && filter.test(id)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private static long rankKey(int filmId, int likesCount) {
+        return ((long) (Integer.MAX_VALUE - likesCount) << 32) | (filmId & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,203 @@
+package ru.yandex.practicum.filmorate.storage.search;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Postings of one term as (film id delta, term frequency) pairs, both varint-encoded, in ascending
+ * film id order. Appending a larger id is O(1). Other changes go to a sorted buffer, with frequency 0
+ * marking a removal, which decoding merges in; the buffer is folded into the encoded list once it
+ * outgrows an eighth of it, so re-encoding is amortized over many changes. Every
+ * {@value #SKIP_INTERVAL}th posting is indexed, so checking whether an id is encoded scans one block.
+ */
+public class PostingList {
+    private static final int SKIP_INTERVAL = 64;
+    private static final int MIN_PENDING = 16;
+    private byte[] data = new byte[8];
+    private int length;
+    private int encodedSize;
+    private int size;
+    private int lastId;
+    private int[] blockFirstIds = new int[1];
+    private int[] blockPreviousIds = new int[1];
+    private int[] blockOffsets = new int[1];
+    private TreeMap<Integer, Integer> pending;
+
+    public int size() {
+        return size;
+    }
+
+    public void add(int id, int frequency) {
+        if (encodedSize == 0 || id > lastId) {
+            append(id, frequency);
+            size++;
+            return;
+        }
+        if (!contains(id)) {
+            size++;
+        }
+        change(id, frequency);
+    }
+
+    public void remove(int id) {
+        if (contains(id)) {
+            size--;
+            change(id, 0);
+        }
+    }
+
+    /**
+     * Decodes into the given arrays, which must hold at least {@link #size()} entries, and returns the
+     * number of postings.
+     */
+    public int decode(int[] ids, int[] frequencies) {
+        Iterator<Map.Entry<Integer, Integer>> changes = pending == null
+                ? null
+                : pending.entrySet().iterator();
+        Map.Entry<Integer, Integer> change = next(changes);
+        int count = 0;
+        int position = 0;
+        int id = 0;
+        for (int i = 0; i < encodedSize; i++) {
+            long delta = readVarInt(data, position);
+            id += (int) (delta >>> 32);
+            long frequency = readVarInt(data, (int) delta);
+            position = (int) frequency;
+            while (change != null && change.getKey() < id) {
+                count = put(ids, frequencies, count, change.getKey(), change.getValue());
+                change = next(changes);
+            }
+            if (change != null && change.getKey() == id) {
+                count = put(ids, frequencies, count, id, change.getValue());
+                change = next(changes);
+            } else {
+                count = put(ids, frequencies, count, id, (int) (frequency >>> 32));
+            }
+        }
+        while (change != null) {
+            count = put(ids, frequencies, count, change.getKey(), change.getValue());
+            change = next(changes);
+        }
+        return count;
+    }
+
+    int getEncodedLength() {
+        return length;
+    }
+
+    private boolean contains(int id) {
+        if (pending != null) {
+            Integer frequency = pending.get(id);
+            if (frequency != null) {
+                return frequency != 0;
+            }
+        }
+        if (encodedSize == 0 || id > lastId) {
+            return false;
+        }
+        int block = Arrays.binarySearch(blockFirstIds, 0, (encodedSize - 1) / SKIP_INTERVAL + 1, id);
+        if (block >= 0) {
+            return true;
+        }
+        block = -block - 2;
+        if (block < 0) {
+            return false;
+        }
+        int position = blockOffsets[block];
+        int postingId = blockPreviousIds[block];
+        int end = Math.min(encodedSize, (block + 1) * SKIP_INTERVAL);
+        for (int i = block * SKIP_INTERVAL; i < end && postingId < id; i++) {
+            long delta = readVarInt(data, position);
+            postingId += (int) (delta >>> 32);
+            position = (int) readVarInt(data, (int) delta);
+        }
+        return postingId == id;
+    }
+
+    private void change(int id, int frequency) {
+        if (pending == null) {
+            pending = new TreeMap<>();
+        }
+        pending.put(id, frequency);
+        if (pending.size() > MIN_PENDING + encodedSize / 8) {
+            int[] ids = new int[size];
+            int[] frequencies = new int[size];
+            int count = decode(ids, frequencies);
+            pending = null;
+            encode(ids, frequencies, count);
+        }
+    }
+
+    private void encode(int[] ids, int[] frequencies, int count) {
+        length = 0;
+        encodedSize = 0;
+        lastId = 0;
+        for (int i = 0; i < count; i++) {
+            append(ids[i], frequencies[i]);
+        }
+        size = count;
+        if (data.length > 2 * Math.max(length, 8)) {
+            data = Arrays.copyOf(data, Math.max(length, 8));
+        }
+    }
+
+    private void append(int id, int frequency) {
+        if (encodedSize % SKIP_INTERVAL == 0) {
+            int block = encodedSize / SKIP_INTERVAL;
+            if (block == blockOffsets.length) {
+                blockFirstIds = Arrays.copyOf(blockFirstIds, block * 2);
+                blockPreviousIds = Arrays.copyOf(blockPreviousIds, block * 2);
+                blockOffsets = Arrays.copyOf(blockOffsets, block * 2);
+            }
+            blockFirstIds[block] = id;
+            blockPreviousIds[block] = lastId;
+            blockOffsets[block] = length;
+        }
+        if (data.length - length < 10) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+        }
+        writeVarInt(id - lastId);
+        writeVarInt(frequency);
+        lastId = id;
+        encodedSize++;
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    /**
+     * Returns the value read at the position in the high half and the position after it in the low
+     * half.
+     */
+    private static long readVarInt(byte[] data, int position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return (long) value << 32 | position;
+    }
+
+    private static int put(int[] ids, int[] frequencies, int count, int id, int frequency) {
+        if (frequency == 0) {
+            return count;
+        }
+        ids[count] = id;
+        frequencies[count] = frequency;
+        return count + 1;
+    }
+
+    private static Map.Entry<Integer, Integer> next(Iterator<Map.Entry<Integer, Integer>> changes) {
+        return changes != null && changes.hasNext() ? changes.next() : null;
+    }
+}
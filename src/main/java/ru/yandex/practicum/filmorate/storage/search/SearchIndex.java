@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.storage.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Inverted index over film names and descriptions. Films are ranked by BM25 (name terms count
+ * {@link #NAME_WEIGHT} times) multiplied by 1 + {@link #POPULARITY_WEIGHT} * ln(1 + likes).
+ */
+public class SearchIndex {
+    public static final int NAME_WEIGHT = 3;
+    public static final double POPULARITY_WEIGHT = 0.2;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Integer, String[]> termsById = new HashMap<>();
+    private final Map<Integer, Integer> lengthsById = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalLength;
+
+    public void put(int filmId, String name, String description) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        TextAnalyzer.analyze(name).forEach(term -> frequencies.merge(term, NAME_WEIGHT, Integer::sum));
+        TextAnalyzer.analyze(description).forEach(term -> frequencies.merge(term, 1, Integer::sum));
+        int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+        lock.writeLock().lock();
+        try {
+            removeFilm(filmId);
+            frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> new PostingList())
+                    .add(filmId, frequency));
+            termsById.put(filmId, frequencies.keySet().toArray(new String[0]));
+            lengthsById.put(filmId, length);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int filmId) {
+        lock.writeLock().lock();
+        try {
+            removeFilm(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            termsById.clear();
+            lengthsById.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Integer> search(String query, int limit, IntUnaryOperator likesCount) {
+        Set<String> terms = new LinkedHashSet<>(TextAnalyzer.analyze(query));
+        long[] candidates;
+        int size = 0;
+        lock.readLock().lock();
+        try {
+            int films = lengthsById.size();
+            if (films == 0 || terms.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / films;
+            int total = 0;
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                total += list == null ? 0 : list.size();
+            }
+            candidates = new long[total];
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                int[] ids = new int[list.size()];
+                int[] frequencies = new int[list.size()];
+                int count = list.decode(ids, frequencies);
+                double idf = Math.log(1 + (films - count + 0.5) / (count + 0.5));
+                for (int i = 0; i < count; i++) {
+                    double lengthNorm = 1 - B + B * lengthsById.get(ids[i]) / averageLength;
+                    double score = idf * frequencies[i] * (K1 + 1) / (frequencies[i] + K1 * lengthNorm);
+                    candidates[size++] = ((long) ids[i] << 32) | (Float.floatToIntBits((float) score) & 0xFFFFFFFFL);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Arrays.sort(candidates, 0, size);
+        long[] ranked = new long[size];
+        int rankedSize = 0;
+        for (int from = 0; from < size; ) {
+            int id = (int) (candidates[from] >>> 32);
+            double score = 0;
+            int to = from;
+            while (to < size && (int) (candidates[to] >>> 32) == id) {
+                score += Float.intBitsToFloat((int) candidates[to]);
+                to++;
+            }
+            score *= 1 + POPULARITY_WEIGHT * Math.log1p(Math.max(likesCount.applyAsInt(id), 0));
+            ranked[rankedSize++] = rankKey(id, (float) score);
+            from = to;
+        }
+        Arrays.sort(ranked, 0, rankedSize);
+        List<Integer> ids = new ArrayList<>(Math.min(limit, rankedSize));
+        for (int k = 0; k < rankedSize && ids.size() < limit; k++) {
+            ids.add((int) ranked[k]);
+        }
+        return ids;
+    }
+
+    private void removeFilm(int filmId) {
+        String[] terms = termsById.remove(filmId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            list.remove(filmId);
+            if (list.size() == 0) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= lengthsById.remove(filmId);
+    }
+
+    private static long rankKey(int filmId, float score) {
+        return ((long) (Integer.MAX_VALUE - Float.floatToIntBits(score)) << 32) | (filmId & 0xFFFFFFFFL);
+    }
+}
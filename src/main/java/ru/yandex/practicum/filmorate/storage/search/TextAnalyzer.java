@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.storage.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into lower-case letter/digit tokens, folds "ё" to "е" and strips one common Russian
+ * inflection ending, so that "фильмы", "фильмов" and "фильм" share a term. English tokens lose a
+ * plural or verb suffix and then a final "e", with a final "y" after a consonant turned into "i"
+ * (a light version of Porter's first step), so that "movies" and "movie" or "stories" and "story"
+ * share a term.
+ */
+public final class TextAnalyzer {
+    private static final int MIN_STEM_LENGTH = 3;
+    private static final String[] ENDINGS = {
+            "иями", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "ых", "их",
+            "ая", "яя", "ое", "ее", "ые", "ие", "ый", "ий", "ой", "ом", "ем", "ам", "ям", "ах", "ях",
+            "ов", "ев", "ей", "ую", "юю", "а", "я", "о", "е", "ы", "и", "у", "ю", "ь", "й"
+    };
+
+    private TextAnalyzer() {
+    }
+
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean isWordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                terms.add(stem(normalized.substring(start, i)));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    static String stem(String token) {
+        char last = token.charAt(token.length() - 1);
+        if (last >= 'a' && last <= 'z') {
+            return stemEnglish(token);
+        }
+        for (String ending : ENDINGS) {
+            if (token.length() - ending.length() >= MIN_STEM_LENGTH && token.endsWith(ending)) {
+                return token.substring(0, token.length() - ending.length());
+            }
+        }
+        return token;
+    }
+
+    private static String stemEnglish(String token) {
+        String stem = token;
+        if (stem.endsWith("sses") || stem.endsWith("ies")) {
+            stem = cut(stem, 2);
+        } else if (stem.endsWith("s") && !stem.endsWith("ss") && !stem.endsWith("us") && !stem.endsWith("is")) {
+            stem = cut(stem, 1);
+        } else if (stem.endsWith("ing")) {
+            stem = cut(stem, 3);
+        } else if (stem.endsWith("ed")) {
+            stem = cut(stem, 2);
+        }
+        if (stem.endsWith("e")) {
+            return cut(stem, 1);
+        }
+        if (stem.endsWith("y") && stem.length() >= MIN_STEM_LENGTH && !isVowel(stem.charAt(stem.length() - 2))) {
+            return stem.substring(0, stem.length() - 1) + 'i';
+        }
+        return stem;
+    }
+
+    private static String cut(String token, int length) {
+        return token.length() - length >= MIN_STEM_LENGTH ? token.substring(0, token.length() - length) : token;
+    }
+
+    private static boolean isVowel(char c) {
+        return "aeiouy".indexOf(c) >= 0;
+    }
+}
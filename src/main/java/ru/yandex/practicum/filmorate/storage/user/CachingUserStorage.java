@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.cache.CacheStats;
+import ru.yandex.practicum.filmorate.storage.cache.SegmentedLruCache;
+
+import java.util.List;
+import java.util.Map;
+
+public class CachingUserStorage implements UserStorage {
+    private final UserStorage userStorage;
+    private final SegmentedLruCache<Integer, User> usersById;
+
+    public CachingUserStorage(UserStorage userStorage, int maxSize) {
+        this.userStorage = userStorage;
+        this.usersById = new SegmentedLruCache<>(maxSize);
+    }
+
+    @Override
+    public User addUser(User user) {
+        return userStorage.addUser(user);
+    }
+
+    @Override
+    public int[] addUsers(List<User> users) {
+        return userStorage.addUsers(users);
+    }
+
+    @Override
+    public void removeUser(int id) {
+        try {
+            userStorage.removeUser(id);
+        } finally {
+            usersById.invalidateAll();
+        }
+    }
+
+    @Override
+    public User updateUser(User user) {
+        try {
+            return userStorage.updateUser(user);
+        } finally {
+            usersById.invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public User getUserById(int id) {
+        return usersById.getOrLoad(id, userStorage::getUserById);
+    }
+
+    @Override
+    public boolean userExists(int id) {
+        return userStorage.userExists(id);
+    }
+
+    @Override
+    public List<User> getUsers() {
+        return userStorage.getUsers();
+    }
+
+    @Override
+    public List<User> getUsers(int after, int limit) {
+        return userStorage.getUsers(after, limit);
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Integer> ids) {
+        return userStorage.getUsersByIds(ids);
+    }
+
+    @Override
+    public void addFriend(int id, int friendId) {
+        try {
+            userStorage.addFriend(id, friendId);
+        } finally {
+            usersById.invalidate(id);
+        }
+    }
+
+    @Override
+    public void removeFriend(int id, int friendId) {
+        try {
+            userStorage.removeFriend(id, friendId);
+        } finally {
+            usersById.invalidate(id);
+        }
+    }
+
+    @Override
+    public List<User> getFriends(int id) {
+        return userStorage.getFriends(id);
+    }
+
+    @Override
+    public List<User> getCommonFriends(int id, int otherId) {
+        return userStorage.getCommonFriends(id, otherId);
+    }
+
+    @Override
+    public int[] addFriendships(List<Friendship> friendships) {
+        try {
+            return userStorage.addFriendships(friendships);
+        } finally {
+            usersById.invalidateAll();
+        }
+    }
+
+    @Override
+    public Map<Integer, IntSet> getFriendsIdsByUser() {
+        return userStorage.getFriendsIdsByUser();
+    }
+
+    @Override
+    public long getUserVersion(int id) {
+        return userStorage.getUserVersion(id);
+    }
+
+    public CacheStats getStats() {
+        return usersById.getStats();
+    }
+}
@@ -1,35 +1,100 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.IntSet;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
+/**
+ * Stored users are immutable snapshots with immutable friend sets. Friendships are applied
+ * through {@link ConcurrentHashMap#compute}, which locks only the bin of the user being changed.
+ * Ids are also indexed by email and login, so imports find duplicates and resolve logins without
+ * scanning all users.
+ */
 @Component("inMemoryUserStorage")
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Integer, User> usersById = new HashMap<>();
-    private int id = 0;
+    private final Map<Integer, User> usersById = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> versionsById = new ConcurrentHashMap<>();
+    private final Map<String, Integer> idsByEmail = new ConcurrentHashMap<>();
+    private final Map<String, Integer> idsByLogin = new ConcurrentHashMap<>();
+    private final AtomicInteger lastId = new AtomicInteger();
+    private final Object importLock = new Object();
 
     @Override
     public User addUser(User user) {
-        user = user.withId(++id);
-        user = user.withFriendsIds(new HashSet<>());
+        int id = lastId.incrementAndGet();
+        user = user.withId(id);
+        user = user.withFriendsIds(IntSet.EMPTY);
         usersById.put(id, user);
+        versionsById.put(id, 0L);
+        idsByEmail.put(user.getEmail(), id);
+        idsByLogin.put(user.getLogin(), id);
         return user;
     }
 
+    @Override
+    public int[] addUsers(List<User> users) {
+        int[] added = new int[users.size()];
+        synchronized (importLock) {
+            for (int i = 0; i < users.size(); i++) {
+                User user = users.get(i);
+                if (!idsByEmail.containsKey(user.getEmail()) && !idsByLogin.containsKey(user.getLogin())) {
+                    addUser(user);
+                    added[i] = 1;
+                }
+            }
+        }
+        return added;
+    }
+
     @Override
     public void removeUser(int id) {
-        usersById.remove(id);
+        User user = usersById.remove(id);
+        if (user == null) {
+            return;
+        }
+        versionsById.remove(id);
+        idsByEmail.remove(user.getEmail(), id);
+        idsByLogin.remove(user.getLogin(), id);
+        usersById.forEach((userId, u) -> {
+            if (u.getFriendsIds().contains(id)) {
+                tryChangeFriends(userId, friendsIds -> friendsIds.without(id));
+            }
+        });
     }
 
     @Override
     public User updateUser(User user) {
-        if (user.getFriendsIds() == null) {
-            user = user.withFriendsIds(new HashSet<>());
+        IntSet.Builder storedFriendsIds = new IntSet.Builder();
+        if (user.getFriendsIds() != null) {
+            user.getFriendsIds().forEachInt(friendId -> {
+                if (usersById.containsKey(friendId)) {
+                    storedFriendsIds.add(friendId);
+                }
+            });
         }
-        usersById.put(user.getId(), user);
-        return user;
+        User updatedUser = user.withFriendsIds(storedFriendsIds.build());
+        int id = updatedUser.getId();
+        User previousUser = usersById.put(id, updatedUser);
+        versionsById.merge(id, 1L, Long::sum);
+        idsByEmail.put(updatedUser.getEmail(), id);
+        idsByLogin.put(updatedUser.getLogin(), id);
+        if (previousUser != null) {
+            if (!previousUser.getEmail().equals(updatedUser.getEmail())) {
+                idsByEmail.remove(previousUser.getEmail(), id);
+            }
+            if (!previousUser.getLogin().equals(updatedUser.getLogin())) {
+                idsByLogin.remove(previousUser.getLogin(), id);
+            }
+        }
+        return updatedUser;
     }
 
     @Override
@@ -37,8 +102,133 @@ public class InMemoryUserStorage implements UserStorage {
         return usersById.get(id);
     }
 
+    @Override
+    public boolean userExists(int id) {
+        return usersById.containsKey(id);
+    }
+
     @Override
     public List<User> getUsers() {
         return new ArrayList<>(usersById.values());
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<User> getUsers(int after, int limit) {
+        return usersById
+                .values()
+                .stream()
+                .filter(u -> u.getId() > after)
+                .sorted(Comparator.comparing(User::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Integer> ids) {
+        return ids.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void addFriend(int id, int friendId) {
+        getUserOrThrow(friendId);
+        changeFriends(id, friendsIds -> friendsIds.with(friendId));
+    }
+
+    @Override
+    public void removeFriend(int id, int friendId) {
+        getUserOrThrow(friendId);
+        changeFriends(id, friendsIds -> friendsIds.without(friendId));
+    }
+
+    @Override
+    public List<User> getFriends(int id) {
+        return getUsersByIds(getUserOrThrow(id).getFriendsIds());
+    }
+
+    @Override
+    public List<User> getCommonFriends(int id, int otherId) {
+        return getUsersByIds(getUserOrThrow(id).getFriendsIds().intersect(getUserOrThrow(otherId).getFriendsIds()));
+    }
+
+    @Override
+    public int[] addFriendships(List<Friendship> friendships) {
+        int[] added = new int[friendships.size()];
+        for (int i = 0; i < friendships.size(); i++) {
+            Integer id = idsByLogin.get(friendships.get(i).getLogin());
+            Integer friendId = idsByLogin.get(friendships.get(i).getFriendLogin());
+            if (id != null && friendId != null && !id.equals(friendId)
+                    && usersById.containsKey(friendId)
+                    && tryChangeFriends(id, friendsIds -> friendsIds.with(friendId))) {
+                added[i] = 1;
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public Map<Integer, IntSet> getFriendsIdsByUser() {
+        Map<Integer, IntSet> friendsIdsByUser = new HashMap<>();
+        usersById.forEach((id, user) -> {
+            if (!user.getFriendsIds().isEmpty()) {
+                friendsIdsByUser.put(id, user.getFriendsIds());
+            }
+        });
+        return friendsIdsByUser;
+    }
+
+    @Override
+    public long getUserVersion(int id) {
+        Long version = versionsById.get(id);
+        if (version == null) {
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+        return version;
+    }
+
+    private List<User> getUsersByIds(IntSet ids) {
+        List<User> users = new ArrayList<>(ids.size());
+        ids.forEachInt(id -> {
+            User user = usersById.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        });
+        return users;
+    }
+
+    private void changeFriends(int id, UnaryOperator<IntSet> change) {
+        if (usersById.get(id) == null) {
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+        tryChangeFriends(id, change);
+    }
+
+    private boolean tryChangeFriends(int id, UnaryOperator<IntSet> change) {
+        boolean[] changed = new boolean[1];
+        usersById.computeIfPresent(id, (userId, user) -> {
+            User changedUser = changeFriends(user, change);
+            changed[0] = changedUser != user;
+            return changedUser;
+        });
+        if (changed[0]) {
+            versionsById.merge(id, 1L, Long::sum);
+        }
+        return changed[0];
+    }
+
+    private static User changeFriends(User user, UnaryOperator<IntSet> change) {
+        IntSet friendsIds = change.apply(user.getFriendsIds());
+        return friendsIds == user.getFriendsIds() ? user : user.withFriendsIds(friendsIds);
+    }
+
+    private User getUserOrThrow(int id) {
+        User user = usersById.get(id);
+        if (user == null) {
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+        return user;
+    }
+}
@@ -5,18 +5,30 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.IntSet;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.stream.Collectors;
 
 @Component("userDbStorage")
 @RequiredArgsConstructor
 public class UserDbStorage implements UserStorage {
+    private static final String USERS_SELECT = "SELECT user_id, " +
+            "email, " +
+            "login, " +
+            "user_name, " +
+            "birthday " +
+            "FROM users ";
+    private static final int FRIENDS_BATCH_SIZE = 1000;
     private final JdbcTemplate jdbcTemplate;
 
     @Override
@@ -44,26 +56,52 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    @Transactional
+    public int[] addUsers(List<User> users) {
+        String sqlQuery = "INSERT INTO users (email, login, user_name, birthday) " +
+                "SELECT CAST(? AS VARCHAR(64)), CAST(? AS VARCHAR(64)), CAST(? AS VARCHAR(64)), CAST(? AS DATE) " +
+                "WHERE NOT EXISTS (SELECT 1 FROM users WHERE email = ?) " +
+                "AND NOT EXISTS (SELECT 1 FROM users WHERE login = ?)";
+        return jdbcTemplate.batchUpdate(sqlQuery, users.stream()
+                .map(u -> new Object[]{u.getEmail(),
+                        u.getLogin(),
+                        u.getName(),
+                        u.getBirthday().toString(),
+                        u.getEmail(),
+                        u.getLogin()})
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    @Transactional
     public void removeUser(int id) {
-        String sqlQuery = "DELETE FROM friendship WHERE user_id = ? OR user_friend_id = ?";
-        jdbcTemplate.update(sqlQuery, id, id);
+        String sqlQuery = "UPDATE users SET version = version + 1 " +
+                "WHERE user_id IN (SELECT user_id FROM friendship WHERE user_friend_id = ?)";
+        jdbcTemplate.update(sqlQuery, id);
+        sqlQuery = "DELETE FROM friendship WHERE user_id = ?";
+        jdbcTemplate.update(sqlQuery, id);
+        sqlQuery = "DELETE FROM friendship WHERE user_friend_id = ?";
+        jdbcTemplate.update(sqlQuery, id);
         sqlQuery = "DELETE FROM users WHERE user_id = ?";
         jdbcTemplate.update(sqlQuery, id);
     }
 
     @Override
+    @Transactional
     public User updateUser(User user) {
-        if (user == null || getUserById(user.getId()) == null) {
+        if (user == null) {
             throw new ValidationException();
         }
+        checkUserExists(user.getId());
         if (user.getFriendsIds() == null) {
-            user = user.withFriendsIds(new HashSet<>());
+            user = user.withFriendsIds(IntSet.EMPTY);
         }
         String sql = "UPDATE users " +
                 "SET email = ?, " +
                 "birthday = ?, " +
                 "login = ?, " +
-                "user_name =? " +
+                "user_name = ?, " +
+                "version = version + 1 " +
                 "WHERE user_id = ?";
         jdbcTemplate.update(sql,
                 user.getEmail(),
@@ -73,80 +111,217 @@ public class UserDbStorage implements UserStorage {
                 user.getId());
         sql = "DELETE FROM friendship WHERE user_id = ?";
         jdbcTemplate.update(sql, user.getId());
-        sql = "INSERT INTO friendship (user_id, user_friend_id) VALUES(?,?)";
-        String finalSql = sql;
-        User finalUser = user;
-        user.getFriendsIds()
-                .forEach(i -> {
-                    if (getUserById(i) != null) {
-                        jdbcTemplate.update(finalSql, finalUser.getId(), i);
-                    }
-                });
-        return user;
+        sql = "INSERT INTO friendship (user_id, user_friend_id) " +
+                "SELECT ?, u.user_id " +
+                "FROM users u " +
+                "WHERE u.user_id = ?";
+        int[] friendsIds = user.getFriendsIds().toIntArray();
+        List<Object[]> friendships = new ArrayList<>(friendsIds.length);
+        for (int friendId : friendsIds) {
+            friendships.add(new Object[]{user.getId(), friendId});
+        }
+        int[] inserted = jdbcTemplate.batchUpdate(sql, friendships);
+        IntSet.Builder storedFriendsIds = new IntSet.Builder();
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i] > 0) {
+                storedFriendsIds.add(friendsIds[i]);
+            }
+        }
+        return user.withFriendsIds(storedFriendsIds.build());
     }
 
     @Override
     public User getUserById(int id) {
-        String sqlQuery = "SELECT u.user_id," +
-                "u.email," +
-                "u.login," +
-                "u.user_name," +
-                "u.birthday," +
-                "f.user_friend_id " +
-                "FROM users u " +
-                "LEFT JOIN friendship f ON u.user_id = f.user_id " +
-                "WHERE u.user_id = ?";
-        SqlRowSet users = jdbcTemplate.queryForRowSet(sqlQuery, id);
-        if (!users.next()) {
+        String sqlQuery = USERS_SELECT + "WHERE user_id = ?";
+        List<User> users = jdbcTemplate.query(sqlQuery, this::mapUser, id);
+        if (users.isEmpty()) {
             throw new NotFoundException("Пользователь с id = " + id + " не найден");
         }
-        users.beforeFirst();
-        Set<Integer> friendsSet = new HashSet<>();
-        while (users.next()) {
-            int friendId = users.getInt("user_friend_id");
-            if (friendId != 0) {
-                friendsSet.add(friendId);
-            }
-        }
-        users.first();
-        return new User(id,
-                users.getString("email"),
-                users.getString("login"),
-                users.getString("user_name"),
-                Objects.requireNonNull(users.getDate("birthday")).toLocalDate(),
-                friendsSet);
+        return withFriends(users).get(0);
     }
 
     @Override
     public List<User> getUsers() {
-        String sqlQuery = "SELECT u.user_id," +
-                "u.email," +
-                "u.login," +
-                "u.user_name," +
-                "u.birthday," +
-                "f.user_friend_id " +
-                "FROM users u " +
-                "LEFT JOIN friendship f ON u.user_id = f.user_id";
-        SqlRowSet users = jdbcTemplate.queryForRowSet(sqlQuery);
+        String sqlQuery = USERS_SELECT + "ORDER BY user_id";
+        List<User> users = jdbcTemplate.query(sqlQuery, this::mapUser);
+        return withFriends(users);
+    }
+
+    @Override
+    public List<User> getUsers(int after, int limit) {
+        String sqlQuery = USERS_SELECT +
+                "WHERE user_id > ? " +
+                "ORDER BY user_id " +
+                "LIMIT ?";
+        List<User> users = jdbcTemplate.query(sqlQuery, this::mapUser, after, limit);
+        return withFriends(users);
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Integer> ids) {
         Map<Integer, User> usersById = new HashMap<>();
-        while (users.next()) {
-            User currUser = usersById.get(users.getInt("user_id"));
-            if (currUser == null) {
-                currUser = new User(users.getInt("user_id"),
-                        users.getString("email"),
-                        users.getString("login"),
-                        users.getString("user_name"),
-                        Objects.requireNonNull(users.getDate("birthday")).toLocalDate(),
-                        new HashSet<>());
-            }
-            int friendId = users.getInt("user_friend_id");
-            if (friendId != 0) {
-                Set<Integer> friends = currUser.getFriendsIds();
-                friends.add(friendId);
-                currUser = currUser.withFriendsIds(friends);
+        for (int from = 0; from < ids.size(); from += FRIENDS_BATCH_SIZE) {
+            List<Integer> batch = ids.subList(from, Math.min(from + FRIENDS_BATCH_SIZE, ids.size()));
+            String sqlQuery = USERS_SELECT +
+                    "WHERE user_id IN (" + String.join(",", Collections.nCopies(batch.size(), "?")) + ")";
+            jdbcTemplate.query(sqlQuery, this::mapUser, batch.toArray())
+                    .forEach(u -> usersById.put(u.getId(), u));
+        }
+        List<User> users = ids.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return withFriends(users);
+    }
+
+    @Override
+    @Transactional
+    public void addFriend(int id, int friendId) {
+        String sqlQuery = "INSERT INTO friendship (user_id, user_friend_id) " +
+                "SELECT u.user_id, f.user_id " +
+                "FROM users u, users f " +
+                "WHERE u.user_id = ? " +
+                "AND f.user_id = ? " +
+                "AND NOT EXISTS (SELECT 1 FROM friendship WHERE user_id = ? AND user_friend_id = ?)";
+        if (jdbcTemplate.update(sqlQuery, id, friendId, id, friendId) == 0) {
+            checkUserExists(id);
+            checkUserExists(friendId);
+            return;
+        }
+        jdbcTemplate.update("UPDATE users SET version = version + 1 WHERE user_id = ?", id);
+    }
+
+    @Override
+    @Transactional
+    public void removeFriend(int id, int friendId) {
+        String sqlQuery = "DELETE FROM friendship WHERE user_id = ? AND user_friend_id = ?";
+        if (jdbcTemplate.update(sqlQuery, id, friendId) == 0) {
+            checkUserExists(id);
+            checkUserExists(friendId);
+            return;
+        }
+        jdbcTemplate.update("UPDATE users SET version = version + 1 WHERE user_id = ?", id);
+    }
+
+    @Override
+    public List<User> getFriends(int id) {
+        String sqlQuery = "SELECT u.user_id, u.email, u.login, u.user_name, u.birthday " +
+                "FROM friendship f " +
+                "JOIN users u ON u.user_id = f.user_friend_id " +
+                "WHERE f.user_id = ? " +
+                "ORDER BY u.user_id";
+        List<User> users = jdbcTemplate.query(sqlQuery, this::mapUser, id);
+        if (users.isEmpty()) {
+            checkUserExists(id);
+        }
+        return users;
+    }
+
+    @Override
+    public List<User> getCommonFriends(int id, int otherId) {
+        String sqlQuery = "SELECT u.user_id, u.email, u.login, u.user_name, u.birthday " +
+                "FROM friendship f " +
+                "JOIN friendship o ON o.user_friend_id = f.user_friend_id " +
+                "JOIN users u ON u.user_id = f.user_friend_id " +
+                "WHERE f.user_id = ? " +
+                "AND o.user_id = ? " +
+                "ORDER BY u.user_id";
+        List<User> users = jdbcTemplate.query(sqlQuery, this::mapUser, id, otherId);
+        if (users.isEmpty()) {
+            checkUserExists(id);
+            checkUserExists(otherId);
+        }
+        return users;
+    }
+
+    @Override
+    @Transactional
+    public int[] addFriendships(List<Friendship> friendships) {
+        String sqlQuery = "INSERT INTO friendship (user_id, user_friend_id) " +
+                "SELECT u.user_id, f.user_id " +
+                "FROM users u, users f " +
+                "WHERE u.login = ? " +
+                "AND f.login = ? " +
+                "AND u.user_id <> f.user_id " +
+                "AND NOT EXISTS (SELECT 1 FROM friendship fr " +
+                "WHERE fr.user_id = u.user_id AND fr.user_friend_id = f.user_id)";
+        int[] added = jdbcTemplate.batchUpdate(sqlQuery, friendships.stream()
+                .map(f -> new Object[]{f.getLogin(), f.getFriendLogin()})
+                .collect(Collectors.toList()));
+        List<Object[]> changedLogins = new ArrayList<>();
+        for (int i = 0; i < added.length; i++) {
+            if (added[i] > 0) {
+                changedLogins.add(new Object[]{friendships.get(i).getLogin()});
             }
-            usersById.put(currUser.getId(), currUser);
         }
-        return new ArrayList<>(usersById.values());
+        jdbcTemplate.batchUpdate("UPDATE users SET version = version + 1 WHERE login = ?", changedLogins);
+        return added;
+    }
+
+    @Override
+    public long getUserVersion(int id) {
+        List<Long> versions = jdbcTemplate.queryForList("SELECT version FROM users WHERE user_id = ?", Long.class, id);
+        if (versions.isEmpty()) {
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+        return versions.get(0);
+    }
+
+    @Override
+    public Map<Integer, IntSet> getFriendsIdsByUser() {
+        Map<Integer, IntSet.Builder> friendsById = new HashMap<>();
+        String sqlQuery = "SELECT user_id, user_friend_id FROM friendship ORDER BY user_id, user_friend_id";
+        jdbcTemplate.query(sqlQuery, rs -> {
+            friendsById.computeIfAbsent(rs.getInt("user_id"), id -> new IntSet.Builder())
+                    .add(rs.getInt("user_friend_id"));
+        });
+        Map<Integer, IntSet> friendsIdsByUser = new HashMap<>();
+        friendsById.forEach((id, builder) -> friendsIdsByUser.put(id, builder.build()));
+        return friendsIdsByUser;
+    }
+
+    @Override
+    public boolean userExists(int id) {
+        Integer users = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE user_id = ?",
+                Integer.class,
+                id);
+        return users != null && users > 0;
+    }
+
+    private void checkUserExists(int id) {
+        if (!userExists(id)) {
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+    }
+
+    private User mapUser(ResultSet rs, int rowNum) throws SQLException {
+        return new User(rs.getInt("user_id"),
+                rs.getString("email"),
+                rs.getString("login"),
+                rs.getString("user_name"),
+                Objects.requireNonNull(rs.getDate("birthday")).toLocalDate(),
+                IntSet.EMPTY);
+    }
+
+    private List<User> withFriends(List<User> users) {
+        for (int from = 0; from < users.size(); from += FRIENDS_BATCH_SIZE) {
+            List<User> batch = users.subList(from, Math.min(from + FRIENDS_BATCH_SIZE, users.size()));
+            loadFriends(batch);
+        }
+        return users;
+    }
+
+    private void loadFriends(List<User> users) {
+        Map<Integer, IntSet.Builder> friendsById = new HashMap<>();
+        Object[] ids = users.stream().map(User::getId).distinct().toArray();
+        String inSql = String.join(",", Collections.nCopies(ids.length, "?"));
+        String sqlQuery = "SELECT user_id, user_friend_id FROM friendship WHERE user_id IN (" + inSql + ")";
+        jdbcTemplate.query(sqlQuery, rs -> {
+            friendsById.computeIfAbsent(rs.getInt("user_id"), id -> new IntSet.Builder())
+                    .add(rs.getInt("user_friend_id"));
+        }, ids);
+        users.replaceAll(u -> friendsById.containsKey(u.getId())
+                ? u.withFriendsIds(friendsById.get(u.getId()).build())
+                : u);
     }
 }
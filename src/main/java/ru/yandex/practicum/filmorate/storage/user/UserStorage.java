@@ -1,17 +1,49 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.IntSet;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.Map;
 
 public interface UserStorage {
     User addUser(User user);
 
+    int[] addUsers(List<User> users);
+
     void removeUser(int id);
 
+    /**
+     * Replaces the user and its friends list; friend ids of missing users are skipped, so the
+     * returned user carries the friends actually stored.
+     */
     User updateUser(User user);
 
     User getUserById(int id);
 
+    boolean userExists(int id);
+
     List<User> getUsers();
+
+    List<User> getUsers(int after, int limit);
+
+    List<User> getUsersByIds(List<Integer> ids);
+
+    void addFriend(int id, int friendId);
+
+    void removeFriend(int id, int friendId);
+
+    List<User> getFriends(int id);
+
+    List<User> getCommonFriends(int id, int otherId);
+
+    int[] addFriendships(List<Friendship> friendships);
+
+    Map<Integer, IntSet> getFriendsIdsByUser();
+
+    /**
+     * Version that grows on every change of the user, its friends list included.
+     */
+    long getUserVersion(int id);
 }
\ No newline at end of file
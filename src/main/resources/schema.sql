@@ -3,19 +3,31 @@ CREATE TABLE IF NOT EXISTS users (
                          email varchar(64),
                          login varchar(64),
                          user_name varchar(64),
-                         birthday date
+                         birthday date,
+                         version bigint DEFAULT 0
 );
 
-CREATE UNIQUE INDEX ON users (email);
-CREATE UNIQUE INDEX ON users (login);
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0;
+
+CREATE UNIQUE INDEX IF NOT EXISTS users_email_uindex ON users (email);
+CREATE UNIQUE INDEX IF NOT EXISTS users_login_uindex ON users (login);
 
 CREATE TABLE IF NOT EXISTS friendship (
                               user_id int,
                               user_friend_id int,
+                              CONSTRAINT friendship_pk PRIMARY KEY (user_id, user_friend_id),
                               FOREIGN KEY (user_id) REFERENCES users (user_id),
                               FOREIGN KEY (user_friend_id) REFERENCES users (user_id)
 );
 
+DELETE FROM friendship
+WHERE _ROWID_ > (SELECT MIN(d._ROWID_)
+                 FROM friendship d
+                 WHERE d.user_id = friendship.user_id AND d.user_friend_id = friendship.user_friend_id);
+ALTER TABLE friendship ADD CONSTRAINT IF NOT EXISTS friendship_pk PRIMARY KEY (user_id, user_friend_id);
+
+CREATE INDEX IF NOT EXISTS friendship_user_friend_id_index ON friendship (user_friend_id);
+
 CREATE TABLE IF NOT EXISTS mpa (
                                      mpa_id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
                                      mpa_name varchar,
@@ -29,17 +41,31 @@ CREATE TABLE IF NOT EXISTS films (
                          release_date date,
                          duration int,
                          mpa_id int,
-                         likes_count int,
+                         likes_count int DEFAULT 0,
+                         version bigint DEFAULT 0,
                          FOREIGN KEY (mpa_id) REFERENCES mpa (mpa_id)
 );
 
+ALTER TABLE films ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS films_likes_count_index ON films (likes_count);
+
 CREATE TABLE IF NOT EXISTS liked (
                          user_id int,
                          film_id int,
+                         CONSTRAINT liked_pk PRIMARY KEY (film_id, user_id),
                          FOREIGN KEY (user_id) REFERENCES users (user_id),
                          FOREIGN KEY (film_id) REFERENCES films (film_id)
 );
 
+DELETE FROM liked
+WHERE _ROWID_ > (SELECT MIN(d._ROWID_)
+                 FROM liked d
+                 WHERE d.film_id = liked.film_id AND d.user_id = liked.user_id);
+ALTER TABLE liked ADD CONSTRAINT IF NOT EXISTS liked_pk PRIMARY KEY (film_id, user_id);
+
+CREATE INDEX IF NOT EXISTS liked_user_id_index ON liked (user_id);
+
 CREATE TABLE IF NOT EXISTS genre (
                          genre_id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
                          genre_name varchar
@@ -48,6 +74,15 @@ CREATE TABLE IF NOT EXISTS genre (
 CREATE TABLE IF NOT EXISTS film_genres (
                                film_id int,
                                genre_id int,
+                               CONSTRAINT film_genres_pk PRIMARY KEY (film_id, genre_id),
                                FOREIGN KEY (film_id) REFERENCES films (film_id),
                                FOREIGN KEY (genre_id) REFERENCES genre (genre_id)
-);
\ No newline at end of file
+);
+
+DELETE FROM film_genres
+WHERE _ROWID_ > (SELECT MIN(d._ROWID_)
+                 FROM film_genres d
+                 WHERE d.film_id = film_genres.film_id AND d.genre_id = film_genres.genre_id);
+ALTER TABLE film_genres ADD CONSTRAINT IF NOT EXISTS film_genres_pk PRIMARY KEY (film_id, genre_id);
+
+CREATE INDEX IF NOT EXISTS film_genres_genre_id_index ON film_genres (genre_id);
\ No newline at end of file
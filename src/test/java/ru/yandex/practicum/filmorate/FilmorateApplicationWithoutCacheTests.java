@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = {
+        "filmorate.cache.enabled=false",
+        "filmorate.likes.write-behind.enabled=true",
+        "filmorate.likes.write-behind.dir=target/likes-wal-test-without-cache"})
+@AutoConfigureTestDatabase
+class FilmorateApplicationWithoutCacheTests {
+
+    @Test
+    void contextLoads() {
+
+    }
+}
@@ -11,7 +11,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
 
 import java.io.IOException;
 import java.net.URI;
@@ -28,6 +30,7 @@ import java.util.List;
 class FilmControllerTest {
 
     private final HttpClient client = HttpClient.newHttpClient();
+    private final ReferenceDataCache referenceDataCache;
     ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
 
     Film validFilm = Film.builder()
@@ -37,7 +40,7 @@ class FilmControllerTest {
             .releaseDate(LocalDate.parse("1999-01-01"))
             .duration(1500)
             .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
-            .likedUsersIds(new HashSet<>())
+            .likedUsersIds(IntSet.EMPTY)
             .likesCount(0)
             .genres(new HashSet<>())
             .build();
@@ -70,7 +73,7 @@ class FilmControllerTest {
                 .releaseDate(LocalDate.parse("1999-01-01"))
                 .duration(1500)
                 .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
-                .likedUsersIds(new HashSet<>())
+                .likedUsersIds(IntSet.EMPTY)
                 .genres(new HashSet<>())
                 .build();
         HttpResponse<String> response = sendRequest(sendFilm, "POST");
@@ -87,7 +90,7 @@ class FilmControllerTest {
                 .releaseDate(LocalDate.parse("1999-01-01"))
                 .duration(1500)
                 .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
-                .likedUsersIds(new HashSet<>())
+                .likedUsersIds(IntSet.EMPTY)
                 .genres(new HashSet<>())
                 .build();
         HttpResponse<String> response = sendRequest(sendFilm, "POST");
@@ -103,7 +106,7 @@ class FilmControllerTest {
                 .releaseDate(LocalDate.parse("1812-09-07"))
                 .duration(1500)
                 .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
-                .likedUsersIds(new HashSet<>())
+                .likedUsersIds(IntSet.EMPTY)
                 .genres(new HashSet<>())
                 .build();
         HttpResponse<String> response = sendRequest(sendFilm, "POST");
@@ -119,7 +122,7 @@ class FilmControllerTest {
                 .releaseDate(LocalDate.parse("1999-01-01"))
                 .duration(-1)
                 .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
-                .likedUsersIds(new HashSet<>())
+                .likedUsersIds(IntSet.EMPTY)
                 .genres(new HashSet<>())
                 .build();
         HttpResponse<String> response = sendRequest(sendFilm, "POST");
@@ -137,7 +140,7 @@ class FilmControllerTest {
                 .releaseDate(LocalDate.parse("2020-01-02"))
                 .duration(111)
                 .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
-                .likedUsersIds(new HashSet<>())
+                .likedUsersIds(IntSet.EMPTY)
                 .likesCount(0)
                 .genres(new HashSet<>())
                 .build();
@@ -158,7 +161,7 @@ class FilmControllerTest {
                 .releaseDate(LocalDate.parse("2020-01-02"))
                 .duration(111)
                 .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
-                .likedUsersIds(new HashSet<>())
+                .likedUsersIds(IntSet.EMPTY)
                 .genres(new HashSet<>())
                 .build();
         updatedFilm = updatedFilm.withId(tmpFilm.getId());
@@ -177,7 +180,7 @@ class FilmControllerTest {
                 .releaseDate(LocalDate.parse("2020-01-02"))
                 .duration(111)
                 .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
-                .likedUsersIds(new HashSet<>())
+                .likedUsersIds(IntSet.EMPTY)
                 .genres(new HashSet<>())
                 .build();
         updatedFilm = updatedFilm.withId(tmpFilm.getId());
@@ -196,7 +199,7 @@ class FilmControllerTest {
                 .releaseDate(LocalDate.parse("1812-09-07"))
                 .duration(111)
                 .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
-                .likedUsersIds(new HashSet<>())
+                .likedUsersIds(IntSet.EMPTY)
                 .genres(new HashSet<>())
                 .build();
         updatedFilm = updatedFilm.withId(tmpFilm.getId());
@@ -215,7 +218,7 @@ class FilmControllerTest {
                 .releaseDate(LocalDate.parse("2020-01-02"))
                 .duration(-1)
                 .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
-                .likedUsersIds(new HashSet<>())
+                .likedUsersIds(IntSet.EMPTY)
                 .genres(new HashSet<>())
                 .build();
         updatedFilm = updatedFilm.withId(tmpFilm.getId());
@@ -229,6 +232,75 @@ class FilmControllerTest {
         Assertions.assertEquals(404, sendRequest(wrongIdFilm, "PUT").statusCode());
     }
 
+    @Test
+    void popularWithWrongCount() {
+        Assertions.assertEquals(400, sendGet("/films/popular?count=0", null).statusCode());
+        Assertions.assertEquals(400, sendGet("/films/popular?count=-1", null).statusCode());
+        Assertions.assertEquals(400, sendGet("/films/popular?count=1001", null).statusCode());
+    }
+
+    @Test
+    void conditionalGetOfFilmAndGenres() throws JsonProcessingException {
+        Film film = mapper.readValue(sendRequest(validFilm, "POST").body(), Film.class);
+        String filmPath = "/films/" + film.getId();
+        HttpResponse<String> response = sendGet(filmPath, null);
+        Assertions.assertEquals(200, response.statusCode());
+        String etag = response.headers().firstValue("ETag").orElseThrow();
+        response = sendGet(filmPath, etag);
+        Assertions.assertEquals(304, response.statusCode());
+        Assertions.assertEquals("", response.body());
+
+        Film updatedFilm = Film.builder()
+                .id(film.getId())
+                .name("newName")
+                .description(film.getDescription())
+                .releaseDate(film.getReleaseDate())
+                .duration(film.getDuration())
+                .mpa(film.getMpa())
+                .likedUsersIds(IntSet.EMPTY)
+                .genres(new HashSet<>())
+                .build();
+        sendRequest(updatedFilm, "PUT");
+        response = sendGet(filmPath, etag);
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertNotEquals(etag, response.headers().firstValue("ETag").orElseThrow());
+        Assertions.assertEquals("newName", mapper.readValue(response.body(), Film.class).getName());
+
+        etag = response.headers().firstValue("ETag").orElseThrow();
+        referenceDataCache.reload();
+        Assertions.assertEquals(200, sendGet(filmPath, etag).statusCode());
+
+        response = sendGet("/films/popular", null);
+        etag = response.headers().firstValue("ETag").orElseThrow();
+        Assertions.assertEquals(304, sendGet("/films/popular", etag).statusCode());
+        Assertions.assertEquals(400, sendGet("/films/popular?count=-1", etag).statusCode());
+        Assertions.assertEquals(404, sendGet("/films/popular?genreId=9999", etag).statusCode());
+
+        response = sendGet("/genres", null);
+        etag = response.headers().firstValue("ETag").orElseThrow();
+        Assertions.assertEquals(304, sendGet("/genres", etag).statusCode());
+        Assertions.assertEquals(304, sendGet("/genres/1", etag).statusCode());
+        Assertions.assertEquals(404, sendGet("/genres/9999", etag).statusCode());
+        Assertions.assertEquals(404, sendGet("/films/9999", etag).statusCode());
+        etag = sendGet("/mpa", null).headers().firstValue("ETag").orElseThrow();
+        Assertions.assertEquals(304, sendGet("/mpa/1", etag).statusCode());
+        Assertions.assertEquals(404, sendGet("/mpa/9999", etag).statusCode());
+    }
+
+    private HttpResponse<String> sendGet(String path, String etag) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create("http://localhost:8080" + path));
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        try {
+            return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private HttpResponse<String> sendRequest(Film film, String method) {
         HttpResponse<String> response;
         try {
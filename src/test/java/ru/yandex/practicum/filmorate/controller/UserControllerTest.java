@@ -10,6 +10,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.model.ImportReport;
+import ru.yandex.practicum.filmorate.model.IntSet;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
@@ -19,8 +21,8 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
@@ -30,7 +32,7 @@ class UserControllerTest {
     private final HttpClient client = HttpClient.newHttpClient();
     private final UserDbStorage userDbStorage;
     ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
-    User validUser = new User(0, "email@yandex.ru", "Login", "Name", LocalDate.parse("1999-01-01"), new HashSet<>());
+    User validUser = new User(0, "email@yandex.ru", "Login", "Name", LocalDate.parse("1999-01-01"), IntSet.EMPTY);
 
     @BeforeEach
     void clearStorage() {
@@ -60,35 +62,35 @@ class UserControllerTest {
 
     @Test
     void addUserWithVoidEmail() {
-        User sendUser = new User(0, "", validUser.getLogin(), validUser.getName(), validUser.getBirthday(), new HashSet<>());
+        User sendUser = new User(0, "", validUser.getLogin(), validUser.getName(), validUser.getBirthday(), IntSet.EMPTY);
         HttpResponse<String> response = sendRequest(sendUser, "POST");
         Assertions.assertEquals(400, response.statusCode());
     }
 
     @Test
     void addUserWithWrongEmail() {
-        User sendUser = new User(0, "email", validUser.getLogin(), validUser.getName(), validUser.getBirthday(), new HashSet<>());
+        User sendUser = new User(0, "email", validUser.getLogin(), validUser.getName(), validUser.getBirthday(), IntSet.EMPTY);
         HttpResponse<String> response = sendRequest(sendUser, "POST");
         Assertions.assertEquals(400, response.statusCode());
     }
 
     @Test
     void addUserWithVoidLogin() {
-        User sendUser = new User(0, validUser.getEmail(), "", validUser.getName(), validUser.getBirthday(), new HashSet<>());
+        User sendUser = new User(0, validUser.getEmail(), "", validUser.getName(), validUser.getBirthday(), IntSet.EMPTY);
         HttpResponse<String> response = sendRequest(sendUser, "POST");
         Assertions.assertEquals(400, response.statusCode());
     }
 
     @Test
     void addUserWithWrongLogin() {
-        User sendUser = new User(0, validUser.getEmail(), "Three words login", validUser.getName(), validUser.getBirthday(), new HashSet<>());
+        User sendUser = new User(0, validUser.getEmail(), "Three words login", validUser.getName(), validUser.getBirthday(), IntSet.EMPTY);
         HttpResponse<String> response = sendRequest(sendUser, "POST");
         Assertions.assertEquals(400, response.statusCode());
     }
 
     @Test
     void addUserWithVoidName() throws JsonProcessingException {
-        User sendUser = new User(0, validUser.getEmail(), validUser.getLogin(), "", validUser.getBirthday(), new HashSet<>());
+        User sendUser = new User(0, validUser.getEmail(), validUser.getLogin(), "", validUser.getBirthday(), IntSet.EMPTY);
         HttpResponse<String> response = sendRequest(sendUser, "POST");
         User returnedUser = mapper.readValue(response.body(), User.class);
         Assertions.assertEquals(200, response.statusCode());
@@ -101,7 +103,7 @@ class UserControllerTest {
     @Test
     void addUserWithWrongBirthday() {
         LocalDate birthday = LocalDate.now().plusDays(1);
-        User sendUser = new User(0, validUser.getEmail(), validUser.getLogin(), validUser.getName(), birthday, new HashSet<>());
+        User sendUser = new User(0, validUser.getEmail(), validUser.getLogin(), validUser.getName(), birthday, IntSet.EMPTY);
         HttpResponse<String> response = sendRequest(sendUser, "POST");
         Assertions.assertEquals(400, response.statusCode());
     }
@@ -116,7 +118,7 @@ class UserControllerTest {
     void updateWithVoidEmail() throws JsonProcessingException {
         HttpResponse<String> response = sendRequest(validUser, "POST");
         User tmpUser = mapper.readValue(response.body(), User.class);
-        User updatedUser = new User(0, "", "newLogin", "newName", LocalDate.parse("2020-01-02"), new HashSet<>());
+        User updatedUser = new User(0, "", "newLogin", "newName", LocalDate.parse("2020-01-02"), IntSet.EMPTY);
         updatedUser = updatedUser.withId(tmpUser.getId());
         response = sendRequest(updatedUser, "PUT");
         Assertions.assertEquals(400, response.statusCode());
@@ -126,7 +128,7 @@ class UserControllerTest {
     void updateWithWrongEmail() throws JsonProcessingException {
         HttpResponse<String> response = sendRequest(validUser, "POST");
         User tmpUser = mapper.readValue(response.body(), User.class);
-        User updatedUser = new User(0, "email", "Login", "Name", LocalDate.parse("1999-01-01"), new HashSet<>());
+        User updatedUser = new User(0, "email", "Login", "Name", LocalDate.parse("1999-01-01"), IntSet.EMPTY);
         updatedUser = updatedUser.withId(tmpUser.getId());
         response = sendRequest(updatedUser, "PUT");
         Assertions.assertEquals(400, response.statusCode());
@@ -136,7 +138,7 @@ class UserControllerTest {
     void updateWithVoidLogin() throws JsonProcessingException {
         HttpResponse<String> response = sendRequest(validUser, "POST");
         User tmpUser = mapper.readValue(response.body(), User.class);
-        User updatedUser = new User(0, "newEmail", "", "newName", LocalDate.parse("2020-01-02"), new HashSet<>());
+        User updatedUser = new User(0, "newEmail", "", "newName", LocalDate.parse("2020-01-02"), IntSet.EMPTY);
         updatedUser = updatedUser.withId(tmpUser.getId());
         response = sendRequest(updatedUser, "PUT");
         Assertions.assertEquals(400, response.statusCode());
@@ -146,7 +148,7 @@ class UserControllerTest {
     void updateWithWrongLogin() throws JsonProcessingException {
         HttpResponse<String> response = sendRequest(validUser, "POST");
         User tmpUser = mapper.readValue(response.body(), User.class);
-        User updatedUser = new User(0, "newEmail", "Three words login", "newName", LocalDate.parse("2020-01-02"), new HashSet<>());
+        User updatedUser = new User(0, "newEmail", "Three words login", "newName", LocalDate.parse("2020-01-02"), IntSet.EMPTY);
         updatedUser = updatedUser.withId(tmpUser.getId());
         response = sendRequest(updatedUser, "PUT");
         Assertions.assertEquals(400, response.statusCode());
@@ -156,7 +158,7 @@ class UserControllerTest {
     void updateUserWithVoidName() throws JsonProcessingException {
         HttpResponse<String> response = sendRequest(validUser, "POST");
         User returnedUser = mapper.readValue(response.body(), User.class);
-        User tmpUser = new User(0, "new@email.ru", "newLogin", "", LocalDate.parse("1999-01-01"), new HashSet<>());
+        User tmpUser = new User(0, "new@email.ru", "newLogin", "", LocalDate.parse("1999-01-01"), IntSet.EMPTY);
         tmpUser = tmpUser.withId(returnedUser.getId());
         response = sendRequest(tmpUser, "PUT");
         User updatedUser = mapper.readValue(response.body(), User.class);
@@ -172,11 +174,35 @@ class UserControllerTest {
         HttpResponse<String> response = sendRequest(validUser, "POST");
         User returnedUser = mapper.readValue(response.body(), User.class);
         LocalDate birthday = LocalDate.now().plusDays(1);
-        User sendUser = new User(returnedUser.getId(), returnedUser.getEmail(), returnedUser.getLogin(), returnedUser.getName(), birthday, new HashSet<>());
+        User sendUser = new User(returnedUser.getId(), returnedUser.getEmail(), returnedUser.getLogin(), returnedUser.getName(), birthday, IntSet.EMPTY);
         response = sendRequest(sendUser, "PUT");
         Assertions.assertEquals(400, response.statusCode());
     }
 
+    @Test
+    void importUsers() throws IOException, InterruptedException {
+        String body = "{\"email\":\"first@yandex.ru\",\"login\":\"first\",\"name\":\"\",\"birthday\":\"1999-01-01\"}\n" +
+                "{\"email\":\"second@yandex.ru\",\"login\":\"second\",\"name\":\"Second\",\"birthday\":\"1999-01-01\"}\n" +
+                "not a json\n" +
+                "{\"login\":\"first\",\"friendLogin\":\"second\"}\n";
+        HttpRequest request = HttpRequest
+                .newBuilder()
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/x-ndjson")
+                .uri(URI.create("http://localhost:8080/users/import"))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        ImportReport report = mapper.readValue(response.body(), ImportReport.class);
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(2, report.getUsersAdded());
+        Assertions.assertEquals(1, report.getFriendshipsAdded());
+        Assertions.assertEquals(1, report.getRejected());
+        Assertions.assertEquals(3, report.getRejectedLines().get(0).getLine());
+        List<User> users = userDbStorage.getUsers();
+        Assertions.assertEquals("first", users.get(0).getName());
+        Assertions.assertEquals(Set.of(users.get(1).getId()), users.get(0).getFriendsIds());
+    }
+
     private HttpResponse<String> sendRequest(User user, String method) {
         HttpResponse<String> response;
         try {
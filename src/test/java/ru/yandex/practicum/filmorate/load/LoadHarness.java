@@ -0,0 +1,230 @@
+package ru.yandex.practicum.filmorate.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Drives a weighted mix of HTTP calls from a fixed number of worker threads and records latency per
+ * operation in HdrHistograms. In RATE mode each request has an intended start time on a fixed
+ * schedule and latency is measured from that time, so a stalled server is charged for the requests
+ * it delayed. In CONCURRENCY mode there is no schedule, so samples are back-filled with
+ * {@link Histogram#recordValueWithExpectedInterval} using the mean per-thread interval observed
+ * during warm-up.
+ */
+public class LoadHarness {
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<Operation> operations = new ArrayList<>();
+    private int totalWeight;
+
+    public enum Mode {
+        CONCURRENCY,
+        RATE
+    }
+
+    public LoadHarness addOperation(String name, int weight, Function<Random, HttpRequest> request) {
+        if (weight > 0) {
+            operations.add(new Operation(name, weight, request));
+            totalWeight += weight;
+        }
+        return this;
+    }
+
+    public Report run(Mode mode, int threads, double rate, long warmupSeconds, long durationSeconds)
+            throws Exception {
+        long expectedIntervalNanos = 0;
+        if (warmupSeconds > 0) {
+            List<WorkerResult> warmup = runPhase(mode, threads, rate, warmupSeconds, 0);
+            long requests = warmup.stream()
+                    .flatMap(r -> r.requests.values().stream())
+                    .mapToLong(Long::longValue)
+                    .sum();
+            expectedIntervalNanos = requests == 0 ? 0 : TimeUnit.SECONDS.toNanos(warmupSeconds) * threads / requests;
+        }
+        List<WorkerResult> results = runPhase(mode, threads, rate, durationSeconds, expectedIntervalNanos);
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        Map<String, Long> requests = new LinkedHashMap<>();
+        Map<String, Long> errors = new LinkedHashMap<>();
+        for (Operation operation : operations) {
+            histograms.put(operation.name, newHistogram());
+            requests.put(operation.name, 0L);
+            errors.put(operation.name, 0L);
+        }
+        for (WorkerResult result : results) {
+            result.histograms.forEach((name, histogram) -> histograms.get(name).add(histogram));
+            result.requests.forEach((name, count) -> requests.merge(name, count, Long::sum));
+            result.errors.forEach((name, count) -> errors.merge(name, count, Long::sum));
+        }
+        return new Report(mode, threads, durationSeconds, histograms, requests, errors);
+    }
+
+    private List<WorkerResult> runPhase(Mode mode, int threads, double rate, long seconds, long expectedIntervalNanos)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            long end = start + TimeUnit.SECONDS.toNanos(seconds);
+            long intervalNanos = mode == Mode.RATE ? (long) (TimeUnit.SECONDS.toNanos(1) * threads / rate) : 0;
+            List<Future<WorkerResult>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                long seed = i;
+                long firstStart = start + intervalNanos * i / threads;
+                futures.add(executor.submit(() -> runWorker(new Random(seed),
+                        firstStart,
+                        end,
+                        intervalNanos,
+                        expectedIntervalNanos)));
+            }
+            List<WorkerResult> results = new ArrayList<>();
+            for (Future<WorkerResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private WorkerResult runWorker(Random random, long firstStart, long end, long intervalNanos, long expectedIntervalNanos) {
+        WorkerResult result = new WorkerResult();
+        long intendedStart = firstStart;
+        while (true) {
+            long now = System.nanoTime();
+            if (intervalNanos > 0) {
+                if (intendedStart >= end) {
+                    break;
+                }
+                if (intendedStart > now) {
+                    LockSupport.parkNanos(intendedStart - now);
+                }
+            } else {
+                if (now >= end) {
+                    break;
+                }
+                intendedStart = now;
+            }
+            Operation operation = pick(random);
+            boolean failed;
+            try {
+                HttpResponse<Void> response = client.send(operation.request.apply(random),
+                        HttpResponse.BodyHandlers.discarding());
+                failed = response.statusCode() >= 400;
+            } catch (Exception e) {
+                failed = true;
+            }
+            long latency = Math.min(System.nanoTime() - intendedStart, HIGHEST_TRACKABLE_NANOS);
+            Histogram histogram = result.histograms.computeIfAbsent(operation.name, name -> newHistogram());
+            if (expectedIntervalNanos > 0) {
+                histogram.recordValueWithExpectedInterval(latency, expectedIntervalNanos);
+            } else {
+                histogram.recordValue(latency);
+            }
+            if (failed) {
+                result.errors.merge(operation.name, 1L, Long::sum);
+            }
+            result.requests.merge(operation.name, 1L, Long::sum);
+            intendedStart += intervalNanos;
+        }
+        return result;
+    }
+
+    private Operation pick(Random random) {
+        int value = random.nextInt(totalWeight);
+        for (Operation operation : operations) {
+            value -= operation.weight;
+            if (value < 0) {
+                return operation;
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+    }
+
+    private static class Operation {
+        private final String name;
+        private final int weight;
+        private final Function<Random, HttpRequest> request;
+
+        private Operation(String name, int weight, Function<Random, HttpRequest> request) {
+            this.name = name;
+            this.weight = weight;
+            this.request = request;
+        }
+    }
+
+    private static class WorkerResult {
+        private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+        private final Map<String, Long> errors = new LinkedHashMap<>();
+        private final Map<String, Long> requests = new LinkedHashMap<>();
+    }
+
+    public static class Report {
+        private final Mode mode;
+        private final int threads;
+        private final long durationSeconds;
+        private final Map<String, Histogram> histograms;
+        private final Map<String, Long> requests;
+        private final Map<String, Long> errors;
+
+        private Report(Mode mode, int threads, long durationSeconds, Map<String, Histogram> histograms,
+                       Map<String, Long> requests, Map<String, Long> errors) {
+            this.mode = mode;
+            this.threads = threads;
+            this.durationSeconds = durationSeconds;
+            this.histograms = histograms;
+            this.requests = requests;
+            this.errors = errors;
+        }
+
+        public long getRequests() {
+            return requests.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long getErrors() {
+            return errors.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder(String.format("mode=%s threads=%d duration=%ds%n",
+                    mode,
+                    threads,
+                    durationSeconds));
+            report.append(String.format("%-10s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                    "operation", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms"));
+            histograms.forEach((name, histogram) -> report.append(String.format(
+                    "%-10s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    name,
+                    requests.get(name),
+                    errors.get(name),
+                    (double) requests.get(name) / durationSeconds,
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(95)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()))));
+            return report.toString();
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
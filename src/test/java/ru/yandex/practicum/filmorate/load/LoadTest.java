@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.load;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test of the running application, skipped unless started with -Dfilmorate.load=true, e.g.
+ * {@code mvn test -Dtest=LoadTest -Dfilmorate.load=true -Dfilmorate.load.mode=rate -Dfilmorate.load.rate=500}.
+ * The report is printed and written to target/load-report.txt.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "filmorate.load", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.datasource.url=jdbc:h2:mem:filmorate-load;DB_CLOSE_DELAY=-1",
+                "logging.level.root=WARN",
+                "logging.level.ru.yandex.practicum.filmorate.load=INFO"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class LoadTest {
+    private static final int BATCH_SIZE = 1000;
+    private static final String DEFAULT_MIX = "films=15,popular=30,like=15,unlike=10,friends=15,common=15";
+    private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void testMixedLoad() throws Exception {
+        int users = Integer.getInteger("filmorate.load.users", 5000);
+        int films = Integer.getInteger("filmorate.load.films", 2000);
+        fillUsers(users, Integer.getInteger("filmorate.load.friends-per-user", 20));
+        fillFilms(films);
+        int[] userIds = userStorage.getUsers().stream().mapToInt(User::getId).toArray();
+        int[] filmIds = filmStorage.getFilms().stream().mapToInt(Film::getId).toArray();
+
+        LoadHarness harness = new LoadHarness();
+        Map<String, Integer> mix = parseMix(System.getProperty("filmorate.load.mix", DEFAULT_MIX));
+        String baseUrl = "http://localhost:" + port;
+        harness.addOperation("films", mix.getOrDefault("films", 0), random -> get(baseUrl + "/films?after="
+                + pick(random, filmIds) + "&limit=50"));
+        harness.addOperation("popular", mix.getOrDefault("popular", 0), random -> get(baseUrl
+                + "/films/popular?count=10"));
+        harness.addOperation("like", mix.getOrDefault("like", 0), random -> HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/films/" + pick(random, filmIds) + "/like/" + pick(random, userIds)))
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build());
+        harness.addOperation("unlike", mix.getOrDefault("unlike", 0), random -> HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/films/" + pick(random, filmIds) + "/like/" + pick(random, userIds)))
+                .DELETE()
+                .build());
+        harness.addOperation("friends", mix.getOrDefault("friends", 0), random -> get(baseUrl + "/users/"
+                + pick(random, userIds) + "/friends"));
+        harness.addOperation("common", mix.getOrDefault("common", 0), random -> {
+            int index = random.nextInt(userIds.length);
+            return get(baseUrl + "/users/" + userIds[index] + "/friends/common/"
+                    + userIds[(index + 1) % userIds.length]);
+        });
+
+        LoadHarness.Mode mode = LoadHarness.Mode.valueOf(System.getProperty("filmorate.load.mode", "concurrency")
+                .toUpperCase());
+        LoadHarness.Report report = harness.run(mode,
+                Integer.getInteger("filmorate.load.threads", 16),
+                Double.parseDouble(System.getProperty("filmorate.load.rate", "500")),
+                Long.getLong("filmorate.load.warmup-seconds", 10L),
+                Long.getLong("filmorate.load.duration-seconds", 30L));
+        log.info("Результаты нагрузочного теста:\n{}", report);
+        Files.writeString(Path.of("target", "load-report.txt"), report.toString(), StandardCharsets.UTF_8);
+
+        assertThat(report.getRequests()).isPositive();
+        assertThat(report.getErrors()).isZero();
+    }
+
+    private void fillUsers(int users, int friendsPerUser) {
+        List<User> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < users; i++) {
+            batch.add(new User(0,
+                    "load" + i + "@mail.ru",
+                    "load" + i,
+                    "Пользователь " + i,
+                    LocalDate.parse("1990-01-01"),
+                    IntSet.EMPTY));
+            if (batch.size() == BATCH_SIZE || i == users - 1) {
+                userStorage.addUsers(batch);
+                batch.clear();
+            }
+        }
+        List<Friendship> friendships = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < users; i++) {
+            for (int k = 1; k <= Math.min(friendsPerUser, users - 1); k++) {
+                friendships.add(new Friendship("load" + i, "load" + (i + k) % users));
+                if (friendships.size() == BATCH_SIZE) {
+                    userStorage.addFriendships(friendships);
+                    friendships.clear();
+                }
+            }
+        }
+        if (!friendships.isEmpty()) {
+            userStorage.addFriendships(friendships);
+        }
+    }
+
+    private void fillFilms(int films) {
+        List<Film> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < films; i++) {
+            batch.add(Film.builder()
+                    .name("Фильм " + i)
+                    .description("Описание фильма " + i)
+                    .releaseDate(LocalDate.parse("1990-01-01").plusDays(i))
+                    .duration(90 + i % 60)
+                    .mpa(new Mpa(1 + i % 5, null, null))
+                    .genres(Set.of(new Genre(1 + i % 6, null)))
+                    .likedUsersIds(IntSet.EMPTY)
+                    .build());
+            if (batch.size() == BATCH_SIZE || i == films - 1) {
+                filmStorage.addFilms(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        return Arrays.stream(mix.split(","))
+                .map(entry -> entry.trim().split("="))
+                .collect(Collectors.toMap(entry -> entry[0], entry -> Integer.parseInt(entry[1])));
+    }
+
+    private static int pick(Random random, int[] ids) {
+        return ids[random.nextInt(ids.length)];
+    }
+
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+}
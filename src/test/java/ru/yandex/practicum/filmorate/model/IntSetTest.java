@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IntSetTest {
+    @Test
+    void testOfSortsAndRemovesDuplicates() {
+        IntSet set = IntSet.of(5, 1, 3, 1, 5);
+        assertThat(set.toIntArray()).containsExactly(1, 3, 5);
+        assertThat(set.contains(3)).isTrue();
+        assertThat(set.contains(4)).isFalse();
+        assertThat(set).isEqualTo(Set.of(1, 3, 5));
+        assertThat(set.hashCode()).isEqualTo(new HashSet<>(List.of(1, 3, 5)).hashCode());
+        assertThat(IntSet.copyOf(List.of(3, 3))).isEqualTo(IntSet.of(3));
+    }
+
+    @Test
+    void testWithAndWithoutReturnNewSets() {
+        IntSet set = IntSet.of(1, 3);
+        IntSet withTwo = set.with(2);
+        assertThat(withTwo.toIntArray()).containsExactly(1, 2, 3);
+        assertThat(set.toIntArray()).containsExactly(1, 3);
+        assertThat(withTwo.with(2)).isSameAs(withTwo);
+        assertThat(withTwo.without(1).toIntArray()).containsExactly(2, 3);
+        assertThat(withTwo.without(7)).isSameAs(withTwo);
+        assertThatThrownBy(() -> set.add(4)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void testIntersection() {
+        IntSet first = IntSet.of(1, 2, 4, 8, 16);
+        IntSet second = IntSet.of(2, 3, 4, 16, 32);
+        assertThat(first.intersectionSize(second)).isEqualTo(3);
+        assertThat(first.intersect(second).toIntArray()).containsExactly(2, 4, 16);
+        assertThat(first.intersect(IntSet.EMPTY)).isSameAs(IntSet.EMPTY);
+    }
+
+    @Test
+    void testJsonRoundTrip() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertThat(objectMapper.writeValueAsString(IntSet.of(3, 1, 2))).isEqualTo("[1,2,3]");
+        assertThat(objectMapper.readValue("[3,1,3]", IntSet.class)).isEqualTo(IntSet.of(1, 3));
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "filmorate.pool.alert.acquire-budget-ms=0")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class DbPoolEndpointTest {
+    private final DbPoolEndpoint dbPoolEndpoint;
+    private final PoolSaturationMonitor poolSaturationMonitor;
+    private final FilmDbStorage filmDbStorage;
+    private final UserDbStorage userDbStorage;
+
+    @Test
+    void testPoolAndStorageStats() {
+        userDbStorage.getUsers(0, 1);
+        filmDbStorage.getFilms(0, 1);
+        PoolStats stats = dbPoolEndpoint.getStats();
+        assertThat(stats.getMax()).isPositive();
+        assertThat(stats.getTotal()).isPositive();
+        assertThat(stats.getActive() + stats.getIdle()).isEqualTo(stats.getTotal());
+        assertThat(stats.getAcquire().getCount()).isPositive();
+        assertThat(stats.getAcquire().getPercentilesMs()).containsKeys("0.5", "0.95", "0.99");
+        assertThat(stats.getStorageCalls())
+                .extracting(PoolStats.TimerStats::getName)
+                .contains("UserDbStorage.getUsers", "FilmDbStorage.getFilms");
+    }
+
+    @Test
+    void testAcquireWaitOverBudgetIsReported() {
+        userDbStorage.getUsers(0, 1);
+        assertThat(poolSaturationMonitor.findAlerts())
+                .anyMatch(alert -> alert.startsWith("Ожидание соединения из пула"));
+    }
+}
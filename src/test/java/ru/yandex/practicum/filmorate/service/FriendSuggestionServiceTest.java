@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class FriendSuggestionServiceTest {
+    private final UserService userService;
+
+    @Test
+    void testSuggestionsFollowFriendshipChanges() {
+        int user = addUser(1);
+        int friend1 = addUser(2);
+        int friend2 = addUser(3);
+        int candidate1 = addUser(4);
+        int candidate2 = addUser(5);
+        userService.addFriend(user, friend1);
+        userService.addFriend(user, friend2);
+        userService.addFriend(friend1, candidate1);
+        userService.addFriend(friend2, candidate1);
+        userService.addFriend(friend2, candidate2);
+        assertThat(userService.getFriendSuggestions(user, 10)).extracting(User::getId)
+                .containsExactly(candidate1, candidate2);
+
+        userService.addFriend(friend1, candidate2);
+        userService.addFriend(user, candidate1);
+        assertThat(userService.getFriendSuggestions(user, 10)).extracting(User::getId)
+                .containsExactly(candidate2);
+
+        userService.removeFriend(user, friend2);
+        userService.updateUser(userService.getUserById(friend1).withFriendsIds(IntSet.of(candidate2, user)));
+        assertThat(userService.getFriendSuggestions(user, 10)).extracting(User::getId)
+                .containsExactly(candidate2);
+
+        userService.removeUser(candidate2);
+        assertThat(userService.getFriendSuggestions(user, 10)).isEmpty();
+    }
+
+    @Test
+    void testReplacedFriendsSkipMissingUsers() {
+        int user = addUser(7);
+        int friend1 = addUser(8);
+        int friend2 = addUser(9);
+        int candidate = addUser(10);
+        userService.addFriend(user, friend1);
+        userService.addFriend(user, friend2);
+        User updatedFriend = userService.updateUser(userService.getUserById(friend1)
+                .withFriendsIds(IntSet.of(candidate, 999_999)));
+        assertThat(updatedFriend.getFriendsIds()).containsExactly(candidate);
+        userService.updateUser(userService.getUserById(friend2).withFriendsIds(IntSet.of(999_999)));
+        assertThat(userService.getFriendSuggestions(user, 1)).extracting(User::getId)
+                .containsExactly(candidate);
+    }
+
+    @Test
+    void testWrongArguments() {
+        int user = addUser(6);
+        assertThatThrownBy(() -> userService.getFriendSuggestions(999_999, 10))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> userService.getFriendSuggestions(user, 0))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    private int addUser(int number) {
+        return userService.addUser(new User(0,
+                "suggest" + number + "@mail.ru",
+                "Suggest" + number,
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY)).getId();
+    }
+}
@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.like.LikeLog;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "filmorate.likes.write-behind.enabled=true",
+        "filmorate.likes.write-behind.dir=target/likes-wal-test",
+        "filmorate.likes.write-behind.flush-interval-ms=3600000"})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class LikeBufferServiceTest {
+    private final LikeBufferService likeBufferService;
+    private final RecommendationService recommendationService;
+    private final FilmService filmService;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    @TempDir
+    Path directory;
+    Film validFilm = Film.builder()
+            .id(0)
+            .name("Название фильма")
+            .description("Описание фильма")
+            .releaseDate(LocalDate.parse("1999-01-01"))
+            .duration(1500)
+            .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
+            .likedUsersIds(IntSet.EMPTY)
+            .likesCount(0)
+            .genres(new HashSet<>())
+            .build();
+
+    @Test
+    void testLikesAreVisibleBeforeFlush() throws IOException {
+        int user1 = addUser(1);
+        int user2 = addUser(2);
+        int film = filmService.addFilm(validFilm).getId();
+        long version = filmService.getFilmVersion(film);
+        filmService.addLike(film, user1);
+        filmService.addLike(film, user2);
+        filmService.removeLike(film, user2);
+        filmService.addLike(film, user2);
+        filmService.removeLike(film, user1);
+
+        assertThat(likeBufferService.getPendingCount()).isEqualTo(2);
+        assertThat(filmService.getFilmById(film).getLikedUsersIds()).containsExactly(user2);
+        assertThat(filmService.getFilmById(film).getLikesCount()).isEqualTo(1);
+        assertThat(filmStorage.getFilmById(film).getLikesCount()).isEqualTo(0);
+        assertThat(filmService.getFilmVersion(film)).isGreaterThan(version);
+        version = filmService.getFilmVersion(film);
+
+        likeBufferService.flush();
+        assertThat(filmService.getFilmVersion(film)).isGreaterThanOrEqualTo(version);
+        assertThat(likeBufferService.getPendingCount()).isEqualTo(0);
+        assertThat(filmStorage.getFilmById(film).getLikedUsersIds()).containsExactly(user2);
+        assertThat(filmStorage.getMostPopularFilms(1)).extracting(Film::getId).containsExactly(film);
+        assertThatThrownBy(() -> filmService.addLike(999_999, user1)).isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> filmService.addLike(film, 999_999)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void testUnflushedLikesAreReplayedOnStartup() throws IOException {
+        int user1 = addUser(3);
+        int user2 = addUser(4);
+        int film = filmService.addFilm(validFilm).getId();
+        try (LikeLog log = new LikeLog(directory)) {
+            log.append(true, film, user1);
+            log.append(true, film, user2);
+            log.append(false, film, user1);
+            log.append(true, 999_999, user1);
+            log.sync(log.append(true, film, 999_999));
+        }
+        LikeBufferService restarted = new LikeBufferService(filmStorage, userStorage, recommendationService,
+                directory.toString());
+        restarted.recover();
+        assertThat(filmStorage.getFilmById(film).getLikedUsersIds()).containsExactly(user2);
+        assertThat(filmStorage.getFilmById(film).getLikesCount()).isEqualTo(1);
+        restarted.close();
+        try (LikeLog log = new LikeLog(directory)) {
+            assertThat(log.getSegments()).hasSize(1);
+        }
+    }
+
+    private int addUser(int number) {
+        return userStorage.addUser(new User(0,
+                "buffer" + number + "@mail.ru",
+                "Buffer" + number,
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY)).getId();
+    }
+}
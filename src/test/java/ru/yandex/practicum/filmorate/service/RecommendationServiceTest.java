@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class RecommendationServiceTest {
+    private final RecommendationService recommendationService;
+    private final FilmService filmService;
+    private final UserService userService;
+    Film validFilm = Film.builder()
+            .id(0)
+            .name("Название фильма")
+            .description("Описание фильма")
+            .releaseDate(LocalDate.parse("1999-01-01"))
+            .duration(1500)
+            .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
+            .likedUsersIds(IntSet.EMPTY)
+            .likesCount(0)
+            .genres(new HashSet<>())
+            .build();
+
+    @Test
+    void testSimilarFilmsAndRecommendations() {
+        int user1 = addUser(1);
+        int user2 = addUser(2);
+        int user3 = addUser(3);
+        int film1 = filmService.addFilm(validFilm).getId();
+        int film2 = filmService.addFilm(validFilm).getId();
+        int film3 = filmService.addFilm(validFilm).getId();
+        filmService.addLike(film1, user1);
+        filmService.addLike(film2, user1);
+        filmService.addLike(film1, user2);
+        filmService.addLike(film2, user2);
+        filmService.addLike(film3, user2);
+        filmService.addLike(film1, user3);
+        recommendationService.refreshIfStale();
+
+        assertThat(recommendationService.getSimilarFilms(film3, 10)).extracting(Film::getId)
+                .containsExactly(film2, film1);
+        assertThat(recommendationService.getRecommendations(user1, 10)).extracting(Film::getId)
+                .containsExactly(film3);
+        assertThat(recommendationService.getRecommendations(user3, 1)).extracting(Film::getId)
+                .containsExactly(film2);
+
+        filmService.removeLike(film3, user2);
+        recommendationService.refreshIfStale();
+        assertThat(recommendationService.getSimilarFilms(film3, 10)).isEmpty();
+        assertThat(recommendationService.getRecommendations(user1, 10)).isEmpty();
+        filmService.removeFilm(film1);
+        filmService.removeFilm(film2);
+        filmService.removeFilm(film3);
+    }
+
+    @Test
+    void testWrongArguments() {
+        int film = filmService.addFilm(validFilm).getId();
+        assertThatThrownBy(() -> recommendationService.getSimilarFilms(999_999, 10))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> recommendationService.getRecommendations(999_999, 10))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> recommendationService.getSimilarFilms(film, 0))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    private int addUser(int number) {
+        return userService.addUser(new User(0,
+                "recommend" + number + "@mail.ru",
+                "Recommend" + number,
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY)).getId();
+    }
+}
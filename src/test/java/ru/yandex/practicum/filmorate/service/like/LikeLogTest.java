@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.service.like;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LikeLogTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testReplayAfterReopen() throws IOException {
+        try (LikeLog log = new LikeLog(directory)) {
+            log.sync(log.append(true, 1, 10));
+            log.sync(log.append(false, 1, 10));
+            log.append(true, 2, 20);
+        }
+        try (LikeLog log = new LikeLog(directory)) {
+            assertThat(log.getSegments()).containsExactly(1L);
+            assertThat(replay(log, 1)).containsExactly("+1/10", "-1/10", "+2/20");
+        }
+    }
+
+    @Test
+    void testReplayStopsAtTornRecord() throws IOException {
+        try (LikeLog log = new LikeLog(directory)) {
+            log.append(true, 1, 10);
+            log.append(true, 2, 20);
+        }
+        Path segment = directory.resolve("1.wal");
+        byte[] data = Files.readAllBytes(segment);
+        data[LikeLog.RECORD_SIZE + 3] ^= 1;
+        Files.write(segment, data);
+        Files.write(segment, new byte[]{1, 0, 0}, StandardOpenOption.APPEND);
+        try (LikeLog log = new LikeLog(directory)) {
+            assertThat(replay(log, 1)).containsExactly("+1/10");
+        }
+    }
+
+    @Test
+    void testRollAndDelete() throws IOException {
+        try (LikeLog log = new LikeLog(directory)) {
+            log.append(true, 1, 10);
+            assertThat(log.roll()).isEqualTo(1);
+            log.sync(log.append(true, 2, 20));
+            assertThat(log.roll()).isEqualTo(2);
+            log.append(true, 3, 30);
+            assertThat(log.getSegments()).containsExactly(1L, 2L);
+            log.deleteUpTo(1);
+            assertThat(log.getSegments()).containsExactly(2L);
+            assertThat(replay(log, 2)).containsExactly("+2/20");
+        }
+        try (LikeLog log = new LikeLog(directory)) {
+            assertThat(log.getSegments()).containsExactly(2L, 3L);
+            assertThat(replay(log, 3)).containsExactly("+3/30");
+        }
+    }
+
+    private static List<String> replay(LikeLog log, long segment) throws IOException {
+        List<String> records = new ArrayList<>();
+        log.replay(segment, (like, filmId, userId) -> records.add((like ? "+" : "-") + filmId + "/" + userId));
+        return records;
+    }
+}
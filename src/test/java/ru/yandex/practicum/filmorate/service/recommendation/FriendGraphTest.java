@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.service.recommendation;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.IntSet;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FriendGraphTest {
+    @Test
+    void testSuggestRanksByMutualFriendsThenId() {
+        FriendGraph graph = FriendGraph.of(Map.of(
+                1, IntSet.of(2, 3),
+                2, IntSet.of(1, 4, 5),
+                3, IntSet.of(1, 5, 6),
+                4, IntSet.EMPTY));
+        assertThat(graph.suggest(1, 10)).containsExactly(5, 4, 6);
+        assertThat(graph.suggest(1, 1)).containsExactly(5);
+        assertThat(graph.suggest(4, 10)).isEmpty();
+        assertThat(graph.suggest(42, 10)).isEmpty();
+    }
+
+    @Test
+    void testOverlayChangesAreVisibleAndSurviveCompaction() {
+        FriendGraph graph = FriendGraph.of(Map.of(
+                1, IntSet.of(2),
+                2, IntSet.of(3)));
+        graph.addFriend(1, 4);
+        graph.addFriend(4, 5);
+        graph.removeFriend(2, 3);
+        graph.setFriends(2, graph.getFriends(2).with(6));
+        assertThat(graph.getOverlaySize()).isEqualTo(3);
+        assertThat(graph.getFriends(1)).containsExactly(2, 4);
+        assertThat(graph.suggest(1, 10)).containsExactly(5, 6);
+
+        FriendGraph compacted = graph.compact();
+        assertThat(compacted.getOverlaySize()).isZero();
+        assertThat(compacted.getFriends(2)).containsExactly(6);
+        assertThat(compacted.suggest(1, 10)).containsExactly(5, 6);
+    }
+
+    @Test
+    void testSuggestMatchesBruteForce() {
+        Random random = new Random(11);
+        Map<Integer, IntSet> friendsIdsByUser = new HashMap<>();
+        for (int user = 1; user <= 200; user++) {
+            IntSet.Builder friends = new IntSet.Builder();
+            for (int k = random.nextInt(15); k > 0; k--) {
+                friends.add(1 + random.nextInt(200));
+            }
+            friendsIdsByUser.put(user, friends.build().without(user));
+        }
+        FriendGraph graph = FriendGraph.of(friendsIdsByUser);
+        for (int user = 1; user <= 200; user++) {
+            IntSet friends = friendsIdsByUser.get(user);
+            int[] suggestions = graph.suggest(user, 200);
+            int previousMutual = Integer.MAX_VALUE;
+            int expectedCount = 0;
+            for (int other = 1; other <= 200; other++) {
+                if (other != user && !friends.contains(other) && mutual(friendsIdsByUser, friends, other) > 0) {
+                    expectedCount++;
+                }
+            }
+            assertThat(suggestions).hasSize(expectedCount);
+            for (int suggestion : suggestions) {
+                int mutual = mutual(friendsIdsByUser, friends, suggestion);
+                assertThat(mutual).isPositive().isLessThanOrEqualTo(previousMutual);
+                previousMutual = mutual;
+            }
+        }
+    }
+
+    private static int mutual(Map<Integer, IntSet> friendsIdsByUser, IntSet friends, int other) {
+        int count = 0;
+        for (int friend : friends) {
+            if (friendsIdsByUser.get(friend).contains(other)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
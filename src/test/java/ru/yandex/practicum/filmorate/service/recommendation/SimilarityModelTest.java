@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.service.recommendation;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.IntSet;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SimilarityModelTest {
+    @Test
+    void testSimilarOrdersByCosineThenId() {
+        SimilarityModel model = SimilarityModel.build(Map.of(
+                1, IntSet.of(10, 11, 12),
+                2, IntSet.of(10, 11, 12),
+                3, IntSet.of(10),
+                4, IntSet.of(12),
+                5, IntSet.of(99)), 10, ForkJoinPool.commonPool());
+        assertThat(model.similar(1, 10)).containsExactly(2, 3, 4);
+        assertThat(model.similar(1, 1)).containsExactly(2);
+        assertThat(model.similar(5, 10)).isEmpty();
+        assertThat(model.similar(42, 10)).isEmpty();
+    }
+
+    @Test
+    void testRecommendSkipsLikedFilms() {
+        SimilarityModel model = SimilarityModel.build(Map.of(
+                1, IntSet.of(10, 11),
+                2, IntSet.of(10, 11),
+                3, IntSet.of(11, 12),
+                4, IntSet.of(12)), 10, ForkJoinPool.commonPool());
+        assertThat(model.recommend(10, 10)).containsExactly(3);
+        assertThat(model.recommend(12, 10)).containsExactly(1, 2);
+        assertThat(model.recommend(12, 1)).containsExactly(1);
+        assertThat(model.recommend(42, 10)).isEmpty();
+    }
+
+    @Test
+    void testTopNeighboursMatchBruteForce() {
+        Random random = new Random(7);
+        Map<Integer, IntSet> likes = new HashMap<>();
+        for (int film = 1; film <= 300; film++) {
+            IntSet.Builder likers = new IntSet.Builder();
+            for (int k = random.nextInt(20); k > 0; k--) {
+                likers.add(random.nextInt(100));
+            }
+            likes.put(film, likers.build());
+        }
+        int neighbours = 5;
+        SimilarityModel model = SimilarityModel.build(likes, neighbours, ForkJoinPool.commonPool());
+        for (int film = 1; film <= 300; film++) {
+            int[] similar = model.similar(film, neighbours);
+            IntSet likers = likes.get(film);
+            double weakest = Double.MAX_VALUE;
+            for (int other : similar) {
+                weakest = Math.min(weakest, cosine(likers, likes.get(other)));
+            }
+            for (int other = 1; other <= 300; other++) {
+                double score = cosine(likers, likes.get(other));
+                if (other != film && score > 0 && similar.length < neighbours) {
+                    assertThat(similar).contains(other);
+                } else if (other != film && score > weakest + 1e-6) {
+                    assertThat(similar).contains(other);
+                }
+            }
+        }
+    }
+
+    private static double cosine(IntSet first, IntSet second) {
+        if (first.isEmpty() || second.isEmpty()) {
+            return 0;
+        }
+        return first.intersectionSize(second) / Math.sqrt((double) first.size() * second.size());
+    }
+}
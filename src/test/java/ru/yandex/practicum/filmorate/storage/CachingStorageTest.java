@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.cache.CacheStats;
+import ru.yandex.practicum.filmorate.storage.cache.SegmentedLruCache;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingStorageTest {
+    Film validFilm = Film.builder()
+            .id(0)
+            .name("Название фильма")
+            .description("Описание фильма")
+            .releaseDate(LocalDate.parse("1999-01-01"))
+            .duration(1500)
+            .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
+            .likedUsersIds(IntSet.EMPTY)
+            .likesCount(0)
+            .genres(new HashSet<>())
+            .build();
+
+    @Test
+    void testFilmCacheHitsAndInvalidation() {
+        CachingFilmStorage filmStorage = new CachingFilmStorage(new InMemoryFilmStorage(), 10);
+        int id = filmStorage.addFilm(validFilm).getId();
+        filmStorage.getFilmById(id);
+        filmStorage.getFilmById(id);
+        assertThat(filmStorage.getStats()).isEqualTo(new CacheStats(1, 1, 0, 1, 10));
+        filmStorage.addLike(id, 1);
+        assertThat(filmStorage.getFilmById(id).getLikesCount()).isEqualTo(1);
+        filmStorage.updateFilm(validFilm.withId(id).withLikedUsersIds(IntSet.EMPTY).withLikesCount(0));
+        assertThat(filmStorage.getFilmById(id).getLikesCount()).isZero();
+        filmStorage.removeFilm(id);
+        assertThat(filmStorage.getFilmById(id)).isNull();
+        assertThat(filmStorage.getStats().getMisses()).isEqualTo(4);
+    }
+
+    @Test
+    void testFilmCacheEviction() {
+        CachingFilmStorage filmStorage = new CachingFilmStorage(new InMemoryFilmStorage(), 2);
+        int id1 = filmStorage.addFilm(validFilm).getId();
+        int id2 = filmStorage.addFilm(validFilm).getId();
+        int id3 = filmStorage.addFilm(validFilm).getId();
+        filmStorage.getFilmById(id1);
+        filmStorage.getFilmById(id1);
+        filmStorage.getFilmById(id2);
+        filmStorage.getFilmById(id3);
+        filmStorage.getFilmById(id1);
+        CacheStats stats = filmStorage.getStats();
+        assertThat(stats.getEvictions()).isEqualTo(1);
+        assertThat(stats.getSize()).isEqualTo(2);
+        assertThat(stats.getHits()).isEqualTo(2);
+    }
+
+    @Test
+    void testLoadOverlappingWriteToOtherKeyIsCached() {
+        SegmentedLruCache<String, String> cache = new SegmentedLruCache<>(10);
+        assertThat(cache.getOrLoad("A", key -> {
+            cache.invalidate("B");
+            return "value";
+        })).isEqualTo("value");
+        assertThat(cache.getOrLoad("A", key -> "reloaded")).isEqualTo("value");
+        assertThat(cache.getStats()).isEqualTo(new CacheStats(1, 1, 0, 1, 10));
+    }
+
+    @Test
+    void testLoadOverlappingWriteToSameKeyIsNotCached() {
+        SegmentedLruCache<String, String> cache = new SegmentedLruCache<>(10);
+        assertThat(cache.getOrLoad("A", key -> {
+            cache.invalidate("A");
+            return "stale";
+        })).isEqualTo("stale");
+        assertThat(cache.getOrLoad("A", key -> "fresh")).isEqualTo("fresh");
+        assertThat(cache.getOrLoad("A", key -> "reloaded")).isEqualTo("fresh");
+    }
+
+    @Test
+    void testUserCacheInvalidation() {
+        CachingUserStorage userStorage = new CachingUserStorage(new InMemoryUserStorage(), 10);
+        User user = userStorage.addUser(new User(0,
+                "email@mail.ru",
+                "Login",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        User friend = userStorage.addUser(new User(0,
+                "friend@mail.ru",
+                "FriendLogin",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        assertThat(userStorage.getUserById(user.getId()).getFriendsIds()).isEmpty();
+        userStorage.addFriend(user.getId(), friend.getId());
+        assertThat(userStorage.getUserById(user.getId()).getFriendsIds()).containsExactly(friend.getId());
+        userStorage.updateUser(user.withName("NewName"));
+        assertThat(userStorage.getUserById(user.getId()).getName()).isEqualTo("NewName");
+        assertThat(userStorage.getStats().getHits()).isZero();
+    }
+}
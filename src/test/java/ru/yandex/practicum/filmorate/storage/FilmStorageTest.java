@@ -6,21 +6,35 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.IntSet;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @AutoConfigureTestDatabase
@@ -28,6 +42,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 public class FilmStorageTest {
     private final FilmDbStorage filmStorage;
     private final UserDbStorage userStorage;
+    private final ReferenceDataCache referenceDataCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
     Film validFilm = Film.builder()
             .id(0)
             .name("Название фильма")
@@ -35,7 +52,7 @@ public class FilmStorageTest {
             .releaseDate(LocalDate.parse("1999-01-01"))
             .duration(1500)
             .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
-            .likedUsersIds(new HashSet<>())
+            .likedUsersIds(IntSet.EMPTY)
             .likesCount(0)
             .genres(new HashSet<>())
             .build();
@@ -90,7 +107,7 @@ public class FilmStorageTest {
                 .releaseDate(LocalDate.parse("1999-02-02"))
                 .duration(2500)
                 .mpa(new Mpa(2, "PG", "детям рекомендуется смотреть фильм с родителями"))
-                .likedUsersIds(new HashSet<>())
+                .likedUsersIds(IntSet.EMPTY)
                 .likesCount(0)
                 .genres(new HashSet<>())
                 .build();
@@ -120,6 +137,8 @@ public class FilmStorageTest {
     void testFindCorrectFilmById() {
         Film tmpFilm = filmStorage.addFilm(validFilm);
         assertThat(filmStorage.getFilmById(tmpFilm.getId())).isEqualTo(tmpFilm);
+        assertThat(filmStorage.filmExists(tmpFilm.getId())).isTrue();
+        assertThat(filmStorage.filmExists(999_999)).isFalse();
     }
 
     @Test
@@ -141,7 +160,7 @@ public class FilmStorageTest {
                 .releaseDate(LocalDate.parse("1999-01-01"))
                 .duration(1500)
                 .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
-                .likedUsersIds(new HashSet<>())
+                .likedUsersIds(IntSet.EMPTY)
                 .genres(new HashSet<>())
                 .build();
         filmStorage.addFilm(validFilm);
@@ -156,13 +175,13 @@ public class FilmStorageTest {
                 "Login",
                 "Name",
                 LocalDate.parse("1990-01-01"),
-                new HashSet<>());
+                IntSet.EMPTY);
         User user2 = new User(0,
                 "email22@mail.ru",
                 "Login22",
                 "Name22",
                 LocalDate.parse("1990-01-01"),
-                new HashSet<>());
+                IntSet.EMPTY);
         user1 = userStorage.addUser(user1);
         user2 = userStorage.addUser(user2);
         Film film1 = Film.builder()
@@ -172,7 +191,7 @@ public class FilmStorageTest {
                 .releaseDate(LocalDate.parse("1999-02-02"))
                 .duration(1500)
                 .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
-                .likedUsersIds(new HashSet<>())
+                .likedUsersIds(IntSet.EMPTY)
                 .genres(new HashSet<>())
                 .build();
         Film film2 = Film.builder()
@@ -182,7 +201,7 @@ public class FilmStorageTest {
                 .releaseDate(LocalDate.parse("1999-02-02"))
                 .duration(1500)
                 .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
-                .likedUsersIds(new HashSet<>())
+                .likedUsersIds(IntSet.EMPTY)
                 .likesCount(1)
                 .genres(new HashSet<>())
                 .build();
@@ -193,19 +212,400 @@ public class FilmStorageTest {
                 .releaseDate(LocalDate.parse("1999-03-03"))
                 .duration(1500)
                 .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
-                .likedUsersIds(new HashSet<>())
+                .likedUsersIds(IntSet.EMPTY)
                 .likesCount(2)
                 .genres(new HashSet<>())
                 .build();
         film1 = filmStorage.addFilm(film1);
         film2 = filmStorage.addFilm(film2);
         film3 = filmStorage.addFilm(film3);
-        Set<Integer> likes2 = new HashSet<>(Arrays.asList(user1.getId()));
-        Set<Integer> likes3 = new HashSet<>(Arrays.asList(user1.getId(), user2.getId()));
+        IntSet likes2 = IntSet.of(user1.getId());
+        IntSet likes3 = IntSet.of(user1.getId(), user2.getId());
         film2 = film2.withLikedUsersIds(likes2);
         film3 = film3.withLikedUsersIds(likes3);
         film2 = filmStorage.updateFilm(film2);
         film3 = filmStorage.updateFilm(film3);
         assertThat(filmStorage.getMostPopularFilms(5)).isEqualTo(List.of(film3, film2, film1));
     }
+
+    @Test
+    void testAddAndRemoveLike() {
+        User user = userStorage.addUser(new User(0,
+                "like@mail.ru",
+                "LikeLogin",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        int id = filmStorage.addFilm(validFilm).getId();
+        filmStorage.addLike(id, user.getId());
+        filmStorage.addLike(id, user.getId());
+        Film likedFilm = filmStorage.getFilmById(id);
+        assertThat(likedFilm.getLikesCount()).isEqualTo(1);
+        assertThat(likedFilm.getLikedUsersIds()).containsExactly(user.getId());
+        filmStorage.foldLikeCounters();
+        assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = ?", Integer.class, id))
+                .isEqualTo(1);
+        assertThat(filmStorage.getFilmById(id).getLikesCount()).isEqualTo(1);
+        filmStorage.removeLike(id, user.getId());
+        filmStorage.removeLike(id, user.getId());
+        Film unlikedFilm = filmStorage.getFilmById(id);
+        assertThat(unlikedFilm.getLikesCount()).isZero();
+        assertThat(unlikedFilm.getLikedUsersIds()).isEmpty();
+        userStorage.removeUser(user.getId());
+    }
+
+    @Test
+    void testFailedUpdateKeepsPendingLikesAndIndexes() {
+        User user = userStorage.addUser(new User(0,
+                "rollback@mail.ru",
+                "RollbackLogin",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        Film film = filmStorage.addFilm(validFilm);
+        filmStorage.addLike(film.getId(), user.getId());
+        Film failedUpdate = namedFilm(film.getId(), "Откатанный фильм").withLikedUsersIds(IntSet.of(999_999));
+        assertThatThrownBy(() -> filmStorage.updateFilm(failedUpdate)).isInstanceOf(DataAccessException.class);
+        assertThat(filmStorage.getFilmById(film.getId()).getLikesCount()).isEqualTo(1);
+        assertThat(filmStorage.getMostPopularFilms(1)).extracting(Film::getId).containsExactly(film.getId());
+        assertThat(filmStorage.searchFilms("откатанный", 10)).isEmpty();
+        filmStorage.foldLikeCounters();
+        assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = ?",
+                Integer.class, film.getId())).isEqualTo(1);
+        filmStorage.removeFilm(film.getId());
+        userStorage.removeUser(user.getId());
+    }
+
+    @Test
+    void testFoldAfterUpdateCommitDoesNotDoubleCountLikes() throws Exception {
+        User user = userStorage.addUser(new User(0,
+                "fold1@mail.ru",
+                "FoldLogin1",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        User otherUser = userStorage.addUser(new User(0,
+                "fold2@mail.ru",
+                "FoldLogin2",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        Film film = filmStorage.addFilm(validFilm);
+        filmStorage.addLike(film.getId(), user.getId());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        try {
+                            executor.submit(filmStorage::foldLikeCounters).get(10, TimeUnit.SECONDS);
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                });
+                filmStorage.updateFilm(film.withLikedUsersIds(IntSet.of(user.getId(), otherUser.getId())));
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(filmStorage.getFilmById(film.getId()).getLikesCount()).isEqualTo(2);
+        filmStorage.foldLikeCounters();
+        assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = ?",
+                Integer.class, film.getId())).isEqualTo(2);
+        filmStorage.removeFilm(film.getId());
+        userStorage.removeUser(user.getId());
+        userStorage.removeUser(otherUser.getId());
+    }
+
+    @Test
+    void testFilmVersions() {
+        User user = userStorage.addUser(new User(0,
+                "version@mail.ru",
+                "VersionLogin",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        Film film = filmStorage.addFilm(validFilm);
+        long filmVersion = filmStorage.getFilmVersion(film.getId());
+        long filmsVersion = filmStorage.getFilmsVersion();
+        filmStorage.addLike(film.getId(), user.getId());
+        assertThat(filmStorage.getFilmVersion(film.getId())).isGreaterThan(filmVersion);
+        assertThat(filmStorage.getFilmsVersion()).isGreaterThan(filmsVersion);
+        filmVersion = filmStorage.getFilmVersion(film.getId());
+        filmStorage.foldLikeCounters();
+        assertThat(filmStorage.getFilmVersion(film.getId())).isEqualTo(filmVersion);
+        filmStorage.updateFilm(film.withMpa(new Mpa(2, null, null)));
+        assertThat(filmStorage.getFilmVersion(film.getId())).isGreaterThan(filmVersion);
+        filmStorage.removeFilm(film.getId());
+        assertThatThrownBy(() -> filmStorage.getFilmVersion(film.getId())).isInstanceOf(NotFoundException.class);
+        userStorage.removeUser(user.getId());
+    }
+
+    @Test
+    void testConcurrentIdenticalLikesAreIdempotent() throws Exception {
+        User user = userStorage.addUser(new User(0,
+                "race@mail.ru",
+                "RaceLogin",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        int id = filmStorage.addFilm(validFilm).getId();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 20; round++) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> likes = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    likes.add(executor.submit(() -> {
+                        start.await();
+                        filmStorage.addLike(id, user.getId());
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> like : likes) {
+                    like.get(10, TimeUnit.SECONDS);
+                }
+                filmStorage.foldLikeCounters();
+                assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM liked WHERE film_id = ?",
+                        Integer.class, id)).isEqualTo(1);
+                assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = ?",
+                        Integer.class, id)).isEqualTo(1);
+                filmStorage.removeLike(id, user.getId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        userStorage.removeUser(user.getId());
+    }
+
+    @Test
+    void testLikesBatchSkipsConcurrentDuplicate() throws Exception {
+        User user1 = userStorage.addUser(new User(0,
+                "batch1@mail.ru",
+                "BatchLogin1",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        User user2 = userStorage.addUser(new User(0,
+                "batch2@mail.ru",
+                "BatchLogin2",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        int id = filmStorage.addFilm(validFilm).getId();
+        CountDownLatch inserted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> concurrentLike = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("INSERT INTO liked (user_id, film_id) VALUES (?, ?)", user1.getId(), id);
+                inserted.countDown();
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            inserted.await();
+            filmStorage.applyLikeChanges(Map.of(id, IntSet.of(user1.getId(), user2.getId())), Map.of());
+            concurrentLike.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(filmStorage.getFilmById(id).getLikedUsersIds()).containsExactly(user1.getId(), user2.getId());
+        assertThat(filmStorage.getFilmById(id).getLikesCount()).isEqualTo(1);
+        filmStorage.removeFilm(id);
+        userStorage.removeUser(user1.getId());
+        userStorage.removeUser(user2.getId());
+    }
+
+    @Test
+    void testAddLikeWithWrongIds() {
+        int id = filmStorage.addFilm(validFilm).getId();
+        assertThatThrownBy(() -> filmStorage.addLike(999, 1))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("error: Фильм с id = 999 не найден");
+        assertThatThrownBy(() -> filmStorage.addLike(id, 999))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("error: Пользователь с id = 999 не найден");
+    }
+
+    @Test
+    void testMostPopularFilmsStatementCountIsConstant() {
+        for (int i = 0; i < 10; i++) {
+            filmStorage.addFilm(validFilm);
+        }
+        StatementCountingJdbcTemplate countingJdbcTemplate =
+                new StatementCountingJdbcTemplate(jdbcTemplate.getDataSource());
+        FilmDbStorage countedStorage = new FilmDbStorage(countingJdbcTemplate, referenceDataCache);
+        countedStorage.rebuildPopularityIndex();
+        countingJdbcTemplate.resetStatementCount();
+        assertThat(countedStorage.getMostPopularFilms(1)).hasSize(1);
+        int singleFilmStatements = countingJdbcTemplate.getStatementCount();
+        countingJdbcTemplate.resetStatementCount();
+        assertThat(countedStorage.getMostPopularFilms(10)).hasSize(10);
+        assertThat(countingJdbcTemplate.getStatementCount()).isEqualTo(singleFilmStatements);
+    }
+
+    @Test
+    void testGetFilmsWithGenresAndLikes() {
+        User user1 = userStorage.addUser(new User(0,
+                "genres1@mail.ru",
+                "GenresLogin1",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        User user2 = userStorage.addUser(new User(0,
+                "genres2@mail.ru",
+                "GenresLogin2",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        Film film = filmStorage.addFilm(validFilm.withGenres(new HashSet<>(List.of(
+                new Genre(1, "Комедия"),
+                new Genre(2, "Драма"),
+                new Genre(6, "Боевик")))));
+        filmStorage.addLike(film.getId(), user1.getId());
+        filmStorage.addLike(film.getId(), user2.getId());
+        Film returnedFilm = filmStorage.getFilms().get(0);
+        assertThat(returnedFilm.getGenres()).extracting(Genre::getId).containsExactly(1, 2, 6);
+        assertThat(returnedFilm.getLikedUsersIds()).containsExactlyInAnyOrder(user1.getId(), user2.getId());
+        assertThat(filmStorage.getFilmById(film.getId())).isEqualTo(returnedFilm);
+        filmStorage.removeFilm(film.getId());
+        userStorage.removeUser(user1.getId());
+        userStorage.removeUser(user2.getId());
+    }
+
+    @Test
+    void testGetFilmsPage() {
+        int id1 = filmStorage.addFilm(validFilm).getId();
+        int id2 = filmStorage.addFilm(validFilm).getId();
+        int id3 = filmStorage.addFilm(validFilm).getId();
+        assertThat(filmStorage.getFilms(0, 2)).extracting(Film::getId).containsExactly(id1, id2);
+        assertThat(filmStorage.getFilms(id2, 2)).extracting(Film::getId).containsExactly(id3);
+        assertThat(filmStorage.getFilms(id3, 2)).isEmpty();
+    }
+
+    @Test
+    void testGetFilmsByIdsKeepsOrder() {
+        int id1 = filmStorage.addFilm(validFilm).getId();
+        int id2 = filmStorage.addFilm(validFilm).getId();
+        assertThat(filmStorage.getFilmsByIds(List.of(id2, 999, id1))).extracting(Film::getId)
+                .containsExactly(id2, id1);
+        assertThat(filmStorage.getFilmsByIds(List.of())).isEmpty();
+    }
+
+    @Test
+    void testSearchFilms() {
+        int id1 = filmStorage.addFilm(namedFilm(0, "Ночной дозор")).getId();
+        int id2 = filmStorage.addFilm(namedFilm(0, "Дневной дозор")).getId();
+        assertThat(filmStorage.searchFilms("ночного дозора", 10)).extracting(Film::getId).containsExactly(id1, id2);
+        filmStorage.updateFilm(namedFilm(id1, "Сумеречный дозор"));
+        assertThat(filmStorage.searchFilms("ночной", 10)).isEmpty();
+        assertThat(filmStorage.searchFilms("сумеречный", 10)).extracting(Film::getName)
+                .containsExactly("Сумеречный дозор");
+        filmStorage.removeFilm(id2);
+        assertThat(filmStorage.searchFilms("дозор", 10)).extracting(Film::getId).containsExactly(id1);
+    }
+
+    @Test
+    void testGetMostPopularFilmsByGenreAndYear() {
+        Film film = validFilm.withGenres(Set.of(new Genre(1, null), new Genre(2, null)));
+        int id1 = filmStorage.addFilm(film).getId();
+        int id2 = filmStorage.addFilms(List.of(film.withGenres(Set.of(new Genre(2, null))))).get(0).getId();
+        assertThat(filmStorage.getMostPopularFilms(10, 2, 1999)).extracting(Film::getId).contains(id1, id2);
+        assertThat(filmStorage.getMostPopularFilms(10, 1, 1999)).extracting(Film::getId)
+                .contains(id1)
+                .doesNotContain(id2);
+        filmStorage.updateFilm(filmStorage.getFilmById(id1).withGenres(Set.of(new Genre(3, null))));
+        assertThat(filmStorage.getMostPopularFilms(10, 1, 1999)).extracting(Film::getId).doesNotContain(id1);
+        assertThat(filmStorage.getMostPopularFilms(10, 3, 1999)).extracting(Film::getId).contains(id1);
+        filmStorage.removeFilm(id2);
+        assertThat(filmStorage.getMostPopularFilms(10, 2, null)).extracting(Film::getId).doesNotContain(id2);
+        assertThatThrownBy(() -> filmStorage.getMostPopularFilms(10, 999, null))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void testGetLikedUsersIdsByFilm() {
+        User user1 = userStorage.addUser(new User(0,
+                "liker1@mail.ru",
+                "Liker1",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        User user2 = userStorage.addUser(new User(0,
+                "liker2@mail.ru",
+                "Liker2",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        int id1 = filmStorage.addFilm(validFilm).getId();
+        int id2 = filmStorage.addFilm(validFilm).getId();
+        int id3 = filmStorage.addFilm(validFilm).getId();
+        filmStorage.addLike(id1, user1.getId());
+        filmStorage.addLike(id1, user2.getId());
+        filmStorage.addLike(id2, user2.getId());
+        assertThat(filmStorage.getLikedUsersIdsByFilm()).isEqualTo(Map.of(id1, IntSet.of(user1.getId(), user2.getId()),
+                id2, IntSet.of(user2.getId())));
+        assertThat(filmStorage.getLikedUsersIdsByFilm()).doesNotContainKey(id3);
+        filmStorage.removeFilm(id1);
+        filmStorage.removeFilm(id2);
+        userStorage.removeUser(user1.getId());
+        userStorage.removeUser(user2.getId());
+    }
+
+    @Test
+    void testAddFilms() {
+        Film filmWithGenres = validFilm.withGenres(new HashSet<>(List.of(new Genre(3, "Мультфильм"))));
+        List<Film> addedFilms = filmStorage.addFilms(List.of(validFilm, filmWithGenres));
+        assertThat(addedFilms).hasSize(2);
+        assertThat(addedFilms.get(0).getId()).isNotZero();
+        assertThat(addedFilms.get(1).getId()).isGreaterThan(addedFilms.get(0).getId());
+        assertThat(filmStorage.getFilms()).isEqualTo(addedFilms);
+    }
+
+    @Test
+    void testAddFilmsWithWrongGenre() {
+        Film filmWithWrongGenre = validFilm.withGenres(new HashSet<>(List.of(new Genre(999, "Жанр"))));
+        assertThatThrownBy(() -> filmStorage.addFilms(List.of(validFilm, filmWithWrongGenre)))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("error: Жанр фильма с id = 999 не найден");
+        assertThat(filmStorage.getFilms()).isEmpty();
+    }
+
+    @Test
+    void testAddingFilmWithWrongGenre() {
+        Film filmWithWrongGenre = validFilm.withGenres(new HashSet<>(List.of(new Genre(999, "Жанр"))));
+        assertThatThrownBy(() -> filmStorage.addFilm(filmWithWrongGenre))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("error: Жанр фильма с id = 999 не найден");
+        assertThat(filmStorage.getFilms()).isEmpty();
+    }
+
+    @Test
+    void testReferenceDataCache() {
+        assertThat(referenceDataCache.getAllMpa()).hasSize(5);
+        assertThat(referenceDataCache.getAllGenres()).hasSize(6);
+        assertThat(referenceDataCache.getMpaById(1)).isEqualTo(new Mpa(1, "G", "у фильма нет возрастных ограничений"));
+        assertThat(referenceDataCache.getGenreById(6)).isEqualTo(new Genre(6, "Боевик"));
+        assertThatThrownBy(() -> referenceDataCache.getMpaById(6))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("error: Возрастное ограничение с id = 6 не найдено");
+    }
+
+    private Film namedFilm(int id, String name) {
+        return Film.builder()
+                .id(id)
+                .name(name)
+                .description(validFilm.getDescription())
+                .releaseDate(validFilm.getReleaseDate())
+                .duration(validFilm.getDuration())
+                .mpa(validFilm.getMpa())
+                .likedUsersIds(IntSet.EMPTY)
+                .genres(new HashSet<>())
+                .build();
+    }
 }
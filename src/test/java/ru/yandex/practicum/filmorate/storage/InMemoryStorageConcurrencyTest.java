@@ -0,0 +1,191 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class InMemoryStorageConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 2000;
+    Film validFilm = Film.builder()
+            .id(0)
+            .name("Название фильма")
+            .description("Описание фильма")
+            .releaseDate(LocalDate.parse("1999-01-01"))
+            .duration(1500)
+            .mpa(new Mpa(1, "G", "у фильма нет возрастных ограничений"))
+            .likedUsersIds(IntSet.EMPTY)
+            .likesCount(0)
+            .genres(new HashSet<>())
+            .build();
+
+    @Test
+    void testConcurrentAddsGetUniqueIds() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        List<Integer> ids = runConcurrently(thread -> {
+            List<Integer> threadIds = new ArrayList<>();
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                threadIds.add(filmStorage.addFilm(validFilm).getId());
+            }
+            return threadIds;
+        });
+        assertThat(Set.copyOf(ids)).hasSize(THREADS * OPERATIONS_PER_THREAD);
+        assertThat(filmStorage.getFilms()).hasSize(THREADS * OPERATIONS_PER_THREAD);
+    }
+
+    @Test
+    void testConcurrentLikesAreNotLost() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        int filmId = filmStorage.addFilm(validFilm).getId();
+        int otherFilmId = filmStorage.addFilm(validFilm).getId();
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                int userId = thread * OPERATIONS_PER_THREAD + i;
+                filmStorage.addLike(filmId, userId);
+                filmStorage.addLike(otherFilmId, userId);
+                if (i % 2 == 0) {
+                    filmStorage.removeLike(otherFilmId, userId);
+                }
+            }
+            return List.of();
+        });
+        Film film = filmStorage.getFilmById(filmId);
+        assertThat(film.getLikedUsersIds()).hasSize(THREADS * OPERATIONS_PER_THREAD);
+        assertThat(film.getLikesCount()).isEqualTo(THREADS * OPERATIONS_PER_THREAD);
+        assertThat(filmStorage.getFilmById(otherFilmId).getLikesCount()).isEqualTo(THREADS * OPERATIONS_PER_THREAD / 2);
+        assertThat(filmStorage.getMostPopularFilms(1)).extracting(Film::getId).containsExactly(filmId);
+    }
+
+    @Test
+    void testConcurrentLikeBatchesAreNotLost() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        int filmId = filmStorage.addFilm(validFilm).getId();
+        int otherFilmId = filmStorage.addFilm(validFilm).getId();
+        runConcurrently(thread -> {
+            IntSet.Builder usersIds = new IntSet.Builder();
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                usersIds.add(thread * OPERATIONS_PER_THREAD + i);
+            }
+            IntSet batch = usersIds.build();
+            filmStorage.applyLikeChanges(Map.of(filmId, batch, otherFilmId, batch), Map.of());
+            filmStorage.applyLikeChanges(Map.of(), Map.of(otherFilmId, batch, 999, batch));
+            return List.of();
+        });
+        assertThat(filmStorage.getFilmById(filmId).getLikesCount()).isEqualTo(THREADS * OPERATIONS_PER_THREAD);
+        assertThat(filmStorage.getFilmById(otherFilmId).getLikedUsersIds()).isEmpty();
+        assertThat(filmStorage.getLikedUsersIdsByFilm()).containsOnlyKeys(filmId);
+        assertThat(filmStorage.getMostPopularFilms(2)).extracting(Film::getId).containsExactly(filmId, otherFilmId);
+    }
+
+    @Test
+    void testConcurrentFriendshipsAreNotLost() throws Exception {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        int userId = userStorage.addUser(newUser(0)).getId();
+        List<Integer> friendIds = new ArrayList<>();
+        for (int i = 1; i <= THREADS * 100; i++) {
+            friendIds.add(userStorage.addUser(newUser(i)).getId());
+        }
+        runConcurrently(thread -> {
+            for (int i = thread; i < friendIds.size(); i += THREADS) {
+                userStorage.addFriend(userId, friendIds.get(i));
+                userStorage.addFriend(friendIds.get(i), userId);
+            }
+            return List.of();
+        });
+        assertThat(userStorage.getUserById(userId).getFriendsIds()).containsExactlyInAnyOrderElementsOf(friendIds);
+        assertThat(friendIds.stream()
+                .map(userStorage::getUserById)
+                .filter(u -> u.getFriendsIds().equals(Set.of(userId)))
+                .collect(Collectors.toList())).hasSize(friendIds.size());
+    }
+
+    @Test
+    void testUpdateDoesNotResurrectRemovedFilm() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        List<Integer> filmIds = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+            filmIds.add(filmStorage.addFilm(validFilm).getId());
+        }
+        runConcurrently(thread -> {
+            for (int i = thread / 2; i < filmIds.size(); i += THREADS / 2) {
+                int filmId = filmIds.get(i);
+                if (thread % 2 == 0) {
+                    filmStorage.removeFilm(filmId);
+                } else {
+                    try {
+                        filmStorage.updateFilm(validFilm.withId(filmId));
+                    } catch (NotFoundException e) {
+                        // фильм уже удалён
+                    }
+                }
+            }
+            return List.of();
+        });
+        assertThat(filmStorage.getFilms()).isEmpty();
+        assertThat(filmStorage.getMostPopularFilms(10)).isEmpty();
+        assertThatThrownBy(() -> filmStorage.updateFilm(validFilm.withId(filmIds.get(0))))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void testReturnedSetsCannotCorruptStorage() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        int filmId = filmStorage.addFilm(validFilm).getId();
+        filmStorage.addLike(filmId, 1);
+        Film film = filmStorage.getFilmById(filmId);
+        assertThatThrownBy(() -> film.getLikedUsersIds().add(2)).isInstanceOf(UnsupportedOperationException.class);
+        filmStorage.addLike(filmId, 2);
+        assertThat(film.getLikedUsersIds()).containsExactly(1);
+    }
+
+    private User newUser(int number) {
+        return new User(0,
+                "user" + number + "@mail.ru",
+                "Login" + number,
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY);
+    }
+
+    private List<Integer> runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<List<Integer>>> tasks = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int number = thread;
+                tasks.add(() -> task.run(number));
+            }
+            List<Integer> results = new ArrayList<>();
+            for (Future<List<Integer>> future : executor.invokeAll(tasks)) {
+                results.addAll(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        List<Integer> run(int thread);
+    }
+}
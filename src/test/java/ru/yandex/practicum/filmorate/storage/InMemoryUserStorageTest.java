@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryUserStorageTest {
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+
+    @Test
+    void testAddUsersSkipsDuplicates() {
+        User user = userStorage.addUser(newUser("first@mail.ru", "First"));
+        userStorage.updateUser(withLogin(user, "Renamed"));
+        int[] added = userStorage.addUsers(List.of(newUser("first@mail.ru", "Other"),
+                newUser("other@mail.ru", "Renamed"),
+                newUser("second@mail.ru", "First"),
+                newUser("second@mail.ru", "Second")));
+        assertThat(added).containsExactly(0, 0, 1, 0);
+        assertThat(userStorage.getUsers()).extracting(User::getLogin).containsExactlyInAnyOrder("Renamed", "First");
+    }
+
+    @Test
+    void testAddFriendshipsResolvesLogins() {
+        User user = userStorage.addUser(newUser("first@mail.ru", "First"));
+        User friend = userStorage.addUser(newUser("second@mail.ru", "Second"));
+        userStorage.updateUser(withLogin(friend, "Renamed"));
+        int[] added = userStorage.addFriendships(List.of(new Friendship("First", "Second"),
+                new Friendship("First", "Renamed"),
+                new Friendship("First", "First")));
+        assertThat(added).containsExactly(0, 1, 0);
+        assertThat(userStorage.getUserById(user.getId()).getFriendsIds()).containsExactly(friend.getId());
+    }
+
+    @Test
+    void testRemoveUserRemovesFriendships() {
+        User user = userStorage.addUser(newUser("first@mail.ru", "First"));
+        User friend = userStorage.addUser(newUser("second@mail.ru", "Second"));
+        userStorage.addFriend(user.getId(), friend.getId());
+        long version = userStorage.getUserVersion(user.getId());
+        userStorage.removeUser(friend.getId());
+        assertThat(userStorage.getUserById(user.getId()).getFriendsIds()).isEmpty();
+        assertThat(userStorage.getUserVersion(user.getId())).isGreaterThan(version);
+        assertThat(userStorage.addUsers(List.of(newUser("second@mail.ru", "Second")))).containsExactly(1);
+    }
+
+    private static User newUser(String email, String login) {
+        return new User(0,
+                email,
+                login,
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY);
+    }
+
+    private static User withLogin(User user, String login) {
+        return new User(user.getId(),
+                user.getEmail(),
+                login,
+                user.getName(),
+                user.getBirthday(),
+                user.getFriendsIds());
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.LikeCounters;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LikeCountersTest {
+    @Test
+    void testFoldWritesPendingDeltas() {
+        LikeCounters counters = new LikeCounters();
+        counters.add(2, 1);
+        counters.add(1, 1);
+        counters.add(2, 1);
+        counters.add(1, -1);
+        List<Map<Integer, Long>> writes = new ArrayList<>();
+        counters.fold(writes::add);
+        assertThat(writes).containsExactly(Map.of(2, 2L));
+        assertThat(counters.getPending(2)).isZero();
+        counters.add(2, -1);
+        assertThat(counters.getPending(2)).isEqualTo(-1);
+        counters.fold(writes::add);
+        assertThat(writes).containsExactly(Map.of(2, 2L), Map.of(2, -1L));
+        counters.fold(writes::add);
+        assertThat(writes).hasSize(2);
+    }
+
+    @Test
+    void testFailedFoldKeepsDeltas() {
+        LikeCounters counters = new LikeCounters();
+        counters.add(1, 3);
+        assertThatThrownBy(() -> counters.fold(deltas -> {
+            throw new IllegalStateException();
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(counters.getPending(1)).isEqualTo(3);
+    }
+
+    @Test
+    void testConcurrentIncrementsAreNotLost() throws InterruptedException {
+        LikeCounters counters = new LikeCounters();
+        Map<Integer, Long> written = new HashMap<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    counters.add(1, 1);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        while (threads.stream().anyMatch(Thread::isAlive)) {
+            counters.fold(deltas -> deltas.forEach((id, delta) -> written.merge(id, delta, Long::sum)));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        counters.fold(deltas -> deltas.forEach((id, delta) -> written.merge(id, delta, Long::sum)));
+        assertThat(written).containsEntry(1, 40_000L);
+        assertThat(counters.getPending(1)).isZero();
+    }
+}
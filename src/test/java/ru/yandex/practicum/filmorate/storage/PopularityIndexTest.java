@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.storage.film.FilmFilterIndex;
+import ru.yandex.practicum.filmorate.storage.film.PopularityIndex;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PopularityIndexTest {
+    @Test
+    void testTopOrdersByLikesThenId() {
+        PopularityIndex index = new PopularityIndex();
+        index.put(3, 0);
+        index.put(1, 0);
+        index.put(2, 5);
+        index.put(4, 5);
+        assertThat(index.top(10)).containsExactly(2, 4, 1, 3);
+        assertThat(index.top(2)).containsExactly(2, 4);
+    }
+
+    @Test
+    void testIncrementAndRemove() {
+        PopularityIndex index = new PopularityIndex();
+        index.put(1, 1);
+        index.put(2, 2);
+        index.increment(1, 2);
+        assertThat(index.top(2)).containsExactly(1, 2);
+        assertThat(index.getLikesCount(1)).isEqualTo(3);
+        index.increment(1, -2);
+        assertThat(index.top(2)).containsExactly(2, 1);
+        index.remove(2);
+        index.increment(2, 1);
+        assertThat(index.top(2)).containsExactly(1);
+        assertThat(index.getLikesCount(2)).isNull();
+    }
+
+    @Test
+    void testTopFilteredByGenreAndYear() {
+        PopularityIndex index = new PopularityIndex();
+        FilmFilterIndex filters = new FilmFilterIndex();
+        for (int id = 1; id <= 100; id++) {
+            index.put(id, id % 10);
+            filters.put(id, 2000 + id % 2, id % 3 == 0 ? IntSet.of(1, 2) : IntSet.of(2));
+        }
+        assertThat(index.top(3, filters.match(null, 2001))).containsExactly(9, 19, 29);
+        assertThat(index.top(3, filters.match(1, 2000))).containsExactly(18, 48, 78);
+        assertThat(index.top(3, filters.match(3, null))).isEmpty();
+        assertThat(index.top(3, filters.match(1, 1999))).isEmpty();
+        filters.put(7, 1999, IntSet.of(1));
+        filters.put(48, 1999, IntSet.of(1));
+        filters.remove(78);
+        assertThat(index.top(3, filters.match(1, 2000))).containsExactly(18, 6, 36);
+        assertThat(index.top(3, filters.match(1, 1999))).containsExactly(48, 7);
+    }
+}
@@ -0,0 +1,212 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.IntSet;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class QueryPlanTest {
+    private static final Pattern TABLE_SCAN =
+            Pattern.compile("PUBLIC\\.(FILMS|USERS|LIKED|FRIENDSHIP|FILM_GENRES)\\.tableScan");
+    private static final int SEED_USERS = 1000;
+    private static final int SEED_FILMS = 300;
+    /**
+     * Fragment of a recorded statement, then the table and column whose index its plan must use.
+     */
+    private static final List<List<String>> EXPECTED_INDEXES = List.of(
+            List.of("FROM users WHERE user_id = ?", "USERS", "USER_ID"),
+            List.of("WHERE NOT EXISTS (SELECT 1 FROM users WHERE email = ?)", "USERS", "EMAIL"),
+            List.of("WHERE u.login = ? AND f.login = ?", "USERS", "LOGIN"),
+            List.of("SELECT ?, u.user_id FROM users u WHERE u.user_id = ?", "USERS", "USER_ID"),
+            List.of("FROM friendship WHERE user_id IN", "FRIENDSHIP", "USER_ID"),
+            List.of("FROM friendship f JOIN friendship o", "FRIENDSHIP", "USER_ID"),
+            List.of("FROM friendship WHERE user_friend_id = ?", "FRIENDSHIP", "USER_FRIEND_ID"),
+            List.of("FROM films f WHERE f.film_id IN", "FILMS", "FILM_ID"),
+            List.of("FROM liked WHERE film_id IN", "LIKED", "FILM_ID"),
+            List.of("FROM liked WHERE user_id = ? AND film_id = ?", "LIKED", "FILM_ID"),
+            List.of("FROM film_genres WHERE film_id IN", "FILM_GENRES", "FILM_ID"));
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
+
+    @Test
+    void testStorageQueriesUseIndexes() {
+        seed();
+        try {
+            checkStorageQueries();
+        } finally {
+            removeSeed();
+        }
+    }
+
+    private void checkStorageQueries() {
+        StatementCountingJdbcTemplate recordingJdbcTemplate =
+                new StatementCountingJdbcTemplate(jdbcTemplate.getDataSource());
+        FilmDbStorage filmStorage = new FilmDbStorage(recordingJdbcTemplate, referenceDataCache);
+        UserDbStorage userStorage = new UserDbStorage(recordingJdbcTemplate);
+        filmStorage.rebuildIndexes();
+        recordingJdbcTemplate.resetStatementCount();
+
+        User user = userStorage.addUser(new User(0,
+                "plan1@mail.ru",
+                "PlanLogin1",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        userStorage.addUsers(List.of(new User(0,
+                "plan2@mail.ru",
+                "PlanLogin2",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY)));
+        User friend = userStorage.getUsers(user.getId(), 1).get(0);
+        userStorage.updateUser(user.withName("Другое имя").withFriendsIds(IntSet.of(friend.getId())));
+        userStorage.removeFriend(user.getId(), friend.getId());
+        userStorage.addFriend(user.getId(), friend.getId());
+        userStorage.addFriendships(List.of(new Friendship("PlanLogin2", "PlanLogin1")));
+        userStorage.getUserById(user.getId());
+        userStorage.getUserVersion(user.getId());
+        userStorage.getFriends(user.getId());
+        userStorage.getCommonFriends(user.getId(), friend.getId());
+        userStorage.getUsersByIds(List.of(user.getId(), friend.getId()));
+        userStorage.getFriendsIdsByUser();
+        userStorage.removeFriend(user.getId(), friend.getId());
+        assertThatThrownBy(() -> userStorage.addFriend(user.getId(), 999_999))
+                .isInstanceOf(NotFoundException.class);
+
+        Film film = filmStorage.addFilm(Film.builder()
+                .name("Название фильма")
+                .description("Описание фильма")
+                .releaseDate(LocalDate.parse("1999-01-01"))
+                .duration(100)
+                .mpa(new Mpa(1, null, null))
+                .genres(Set.of(new Genre(1, null)))
+                .likedUsersIds(IntSet.EMPTY)
+                .build());
+        Film otherFilm = filmStorage.addFilms(List.of(film.withId(0))).get(0);
+        filmStorage.updateFilm(film.withLikedUsersIds(IntSet.of(user.getId())));
+        filmStorage.addLike(otherFilm.getId(), friend.getId());
+        filmStorage.getFilmById(film.getId());
+        filmStorage.getFilmVersion(film.getId());
+        filmStorage.getFilms(0, 10);
+        filmStorage.getMostPopularFilms(10);
+        filmStorage.getMostPopularFilms(10, 1, 1999);
+        filmStorage.getFilmsByIds(List.of(film.getId(), otherFilm.getId()));
+        filmStorage.getLikedUsersIdsByFilm();
+        filmStorage.searchFilms("название", 10);
+        filmStorage.removeLike(otherFilm.getId(), friend.getId());
+        filmStorage.foldLikeCounters();
+        filmStorage.applyLikeChanges(Map.of(film.getId(), IntSet.of(friend.getId())),
+                Map.of(otherFilm.getId(), IntSet.of(user.getId())));
+        assertThatThrownBy(() -> filmStorage.addLike(film.getId(), 999_999))
+                .isInstanceOf(NotFoundException.class);
+        filmStorage.removeFilm(film.getId());
+        filmStorage.removeFilm(otherFilm.getId());
+        userStorage.removeUser(user.getId());
+        userStorage.removeUser(friend.getId());
+
+        Map<String, String> plans = new LinkedHashMap<>();
+        for (String sql : recordingJdbcTemplate.getStatements()) {
+            plans.put(sql, explain(sql));
+        }
+        assertThat(plans).hasSizeGreaterThan(20);
+        assertThat(plans).allSatisfy((sql, plan) -> assertThat(plan).doesNotContainPattern(TABLE_SCAN));
+        for (List<String> expected : EXPECTED_INDEXES) {
+            List<String> indexes = jdbcTemplate.queryForList("SELECT 'PUBLIC.' || index_name || ':' " +
+                            "FROM information_schema.index_columns " +
+                            "WHERE table_name = ? AND column_name = ? AND ordinal_position = 1",
+                    String.class,
+                    expected.get(1),
+                    expected.get(2));
+            List<String> statements = plans.keySet()
+                    .stream()
+                    .filter(sql -> sql.contains(expected.get(0)))
+                    .collect(Collectors.toList());
+            assertThat(indexes).as(expected.toString()).isNotEmpty();
+            assertThat(statements).as(expected.get(0)).isNotEmpty();
+            for (String sql : statements) {
+                String plan = plans.get(sql);
+                assertThat(indexes).as(plan).anyMatch(plan::contains);
+            }
+        }
+    }
+
+    /**
+     * Fills the link tables so that the optimizer picks plans by real selectivity.
+     */
+    private void seed() {
+        jdbcTemplate.update("INSERT INTO users (email, login, user_name, birthday) " +
+                "SELECT 'seed' || x || '@mail.ru', 'Seed' || x, 'Name', DATE '1990-01-01' " +
+                "FROM SYSTEM_RANGE(1, ?)", SEED_USERS);
+        jdbcTemplate.update("INSERT INTO films (film_name, film_description, release_date, duration, mpa_id, likes_count) " +
+                "SELECT 'Seed film ' || x, 'Описание', DATE '2000-01-01', 100, 1 + MOD(x, 5), 10 " +
+                "FROM SYSTEM_RANGE(1, ?)", SEED_FILMS);
+        Integer firstUserId = jdbcTemplate.queryForObject("SELECT MIN(user_id) FROM users WHERE login LIKE 'Seed%'",
+                Integer.class);
+        Integer firstFilmId = jdbcTemplate.queryForObject("SELECT MIN(film_id) FROM films WHERE film_name LIKE 'Seed film%'",
+                Integer.class);
+        jdbcTemplate.update("INSERT INTO friendship (user_id, user_friend_id) " +
+                "SELECT ? + u.x, ? + MOD(u.x + k.x, ?) FROM SYSTEM_RANGE(0, ?) u, SYSTEM_RANGE(1, 5) k",
+                firstUserId, firstUserId, SEED_USERS, SEED_USERS - 1);
+        jdbcTemplate.update("INSERT INTO liked (user_id, film_id) " +
+                "SELECT ? + MOD(f.x * 7 + k.x, ?), ? + f.x FROM SYSTEM_RANGE(0, ?) f, SYSTEM_RANGE(0, 9) k",
+                firstUserId, SEED_USERS, firstFilmId, SEED_FILMS - 1);
+        jdbcTemplate.update("INSERT INTO film_genres (film_id, genre_id) " +
+                "SELECT ? + f.x, 1 + MOD(f.x + k.x, 6) FROM SYSTEM_RANGE(0, ?) f, SYSTEM_RANGE(0, 1) k",
+                firstFilmId, SEED_FILMS - 1);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    private void removeSeed() {
+        jdbcTemplate.update("DELETE FROM liked WHERE film_id IN (SELECT film_id FROM films WHERE film_name LIKE 'Seed film%')");
+        jdbcTemplate.update("DELETE FROM film_genres WHERE film_id IN (SELECT film_id FROM films WHERE film_name LIKE 'Seed film%')");
+        jdbcTemplate.update("DELETE FROM friendship WHERE user_id IN (SELECT user_id FROM users WHERE login LIKE 'Seed%')");
+        jdbcTemplate.update("DELETE FROM films WHERE film_name LIKE 'Seed film%'");
+        jdbcTemplate.update("DELETE FROM users WHERE login LIKE 'Seed%'");
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                int parameterCount = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameterCount; i++) {
+                    statement.setObject(i, 1);
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    StringBuilder plan = new StringBuilder();
+                    while (rs.next()) {
+                        plan.append(rs.getString(1));
+                    }
+                    return plan.toString();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SchemaMigrationTest {
+    private static final List<String> LINK_TABLES = List.of("friendship", "liked", "film_genres");
+
+    @Test
+    void testSchemaAddsPrimaryKeysToLegacyLinkTables() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:schema-migration;DB_CLOSE_DELAY=-1", "sa", ""));
+        runSchema(jdbcTemplate);
+        for (String table : LINK_TABLES) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP CONSTRAINT " + table + "_pk");
+        }
+        jdbcTemplate.update("INSERT INTO users (user_id, email, login) VALUES (1, 'a@mail.ru', 'a'), (2, 'b@mail.ru', 'b')");
+        jdbcTemplate.update("INSERT INTO films (film_id, film_name) VALUES (1, 'Фильм')");
+        jdbcTemplate.update("INSERT INTO genre (genre_id, genre_name) VALUES (1, 'Комедия'), (2, 'Драма')");
+        jdbcTemplate.update("INSERT INTO friendship VALUES (1, 2), (1, 2), (2, 1)");
+        jdbcTemplate.update("INSERT INTO liked VALUES (1, 1), (1, 1), (1, 1), (2, 1)");
+        jdbcTemplate.update("INSERT INTO film_genres VALUES (1, 1), (1, 2), (1, 2)");
+
+        runSchema(jdbcTemplate);
+
+        assertThat(count(jdbcTemplate, "friendship")).isEqualTo(2);
+        assertThat(count(jdbcTemplate, "liked")).isEqualTo(2);
+        assertThat(count(jdbcTemplate, "film_genres")).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForList("SELECT LOWER(table_name) FROM information_schema.table_constraints " +
+                "WHERE constraint_type = 'PRIMARY KEY' AND LOWER(table_name) IN ('friendship', 'liked', 'film_genres')",
+                String.class)).containsExactlyInAnyOrderElementsOf(LINK_TABLES);
+        runSchema(jdbcTemplate);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private static void runSchema(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+            return null;
+        });
+    }
+
+    private static int count(JdbcTemplate jdbcTemplate, String table) {
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+        return rows == null ? 0 : rows;
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public class StatementCountingJdbcTemplate extends JdbcTemplate {
+    private final Set<String> statements = new LinkedHashSet<>();
+    private int statementCount;
+
+    public StatementCountingJdbcTemplate(DataSource dataSource) {
+        super();
+        setDataSource(proxy(DataSource.class, dataSource, (target, method, args) -> {
+            Object result = method.invoke(target, args);
+            return result instanceof Connection ? proxy(Connection.class, result, this::onConnection) : result;
+        }));
+        afterPropertiesSet();
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public Set<String> getStatements() {
+        return statements;
+    }
+
+    public void resetStatementCount() {
+        statementCount = 0;
+        statements.clear();
+    }
+
+    private Object onConnection(Object connection, Method method, Object[] args) throws Exception {
+        if (method.getName().equals("prepareStatement") && args[0] instanceof String) {
+            record((String) args[0]);
+        }
+        Object result = method.invoke(connection, args);
+        if (method.getName().equals("createStatement")) {
+            return proxy(Statement.class, result, (statement, statementMethod, statementArgs) -> {
+                if (statementMethod.getName().startsWith("execute")
+                        && statementArgs != null
+                        && statementArgs[0] instanceof String) {
+                    record((String) statementArgs[0]);
+                }
+                return statementMethod.invoke(statement, statementArgs);
+            });
+        }
+        return result;
+    }
+
+    private synchronized void record(String sql) {
+        statementCount++;
+        statements.add(sql);
+    }
+
+    private static <T> T proxy(Class<T> type, Object target, Handler handler) {
+        InvocationHandler invocationHandler = (p, method, args) -> {
+            try {
+                return handler.invoke(target, method, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, invocationHandler));
+    }
+
+    private interface Handler {
+        Object invoke(Object target, Method method, Object[] args) throws Exception;
+    }
+}
@@ -8,14 +8,18 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.context.SpringBootTest;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.IntSet;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
-import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @AutoConfigureTestDatabase
@@ -27,7 +31,7 @@ public class UserStorageTest {
             "Login",
             "Name",
             LocalDate.parse("1990-01-01"),
-            new HashSet<>());
+            IntSet.EMPTY);
 
     @BeforeEach
     public void clearStorage() {
@@ -75,11 +79,25 @@ public class UserStorageTest {
                 "Login2",
                 "Name2",
                 LocalDate.parse("1992-02-02"),
-                new HashSet<>());
+                IntSet.EMPTY);
         userStorage.updateUser(newUser);
         assertThat(userStorage.getUserById(user.getId())).isEqualTo(newUser);
     }
 
+    @Test
+    void testUpdateUserSkipsMissingFriends() {
+        User user = userStorage.addUser(validUser);
+        User friend = userStorage.addUser(new User(0,
+                "friend@mail.ru",
+                "FriendLogin",
+                "FriendName",
+                LocalDate.parse("1991-01-01"),
+                IntSet.EMPTY));
+        User updated = userStorage.updateUser(user.withFriendsIds(IntSet.of(friend.getId(), 999)));
+        assertThat(updated.getFriendsIds()).containsExactly(friend.getId());
+        assertThat(userStorage.getUserById(user.getId()).getFriendsIds()).containsExactly(friend.getId());
+    }
+
     @Test
     void testUpdatingVoidBodyUser() {
         try {
@@ -105,11 +123,13 @@ public class UserStorageTest {
                 "Login",
                 "Name",
                 LocalDate.parse("1990-01-01"),
-                new HashSet<>()));
+                IntSet.EMPTY));
         Optional<User> userOptional = Optional.of(userStorage.getUserById(tmpUser.getId()));
         assertThat(userOptional)//утверждаю, что userOptional
                 .isPresent()    //существует
                 .hasValueSatisfying(user -> assertThat(user).hasFieldOrPropertyWithValue("id", tmpUser.getId()));
+        assertThat(userStorage.userExists(tmpUser.getId())).isTrue();
+        assertThat(userStorage.userExists(999_999)).isFalse();
     }
 
     @Test
@@ -129,16 +149,177 @@ public class UserStorageTest {
                 "Login2",
                 "Name",
                 LocalDate.parse("1990-01-01"),
-                new HashSet<>());
+                IntSet.EMPTY);
         User validUser3 = new User(0,
                 "email3@mail.ru",
                 "Login3",
                 "Name",
                 LocalDate.parse("1990-01-01"),
-                new HashSet<>());
+                IntSet.EMPTY);
         userStorage.addUser(validUser);
         userStorage.addUser(validUser2);
         userStorage.addUser(validUser3);
         assertThat(userStorage.getUsers().size()).isEqualTo(3);
     }
+
+    @Test
+    void testAddAndRemoveFriend() {
+        User user = userStorage.addUser(validUser);
+        User friend = userStorage.addUser(new User(0,
+                "friend@mail.ru",
+                "FriendLogin",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        userStorage.addFriend(user.getId(), friend.getId());
+        userStorage.addFriend(user.getId(), friend.getId());
+        assertThat(userStorage.getUserById(user.getId()).getFriendsIds()).containsExactly(friend.getId());
+        assertThat(userStorage.getUserById(friend.getId()).getFriendsIds()).isEmpty();
+        userStorage.removeFriend(user.getId(), friend.getId());
+        assertThat(userStorage.getUserById(user.getId()).getFriendsIds()).isEmpty();
+        userStorage.removeUser(user.getId());
+        userStorage.removeUser(friend.getId());
+    }
+
+    @Test
+    void testUserVersions() {
+        User user = userStorage.addUser(validUser);
+        User friend = userStorage.addUser(new User(0,
+                "friend@mail.ru",
+                "FriendLogin",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        long version = userStorage.getUserVersion(user.getId());
+        userStorage.addFriend(user.getId(), friend.getId());
+        assertThat(userStorage.getUserVersion(user.getId())).isGreaterThan(version);
+        version = userStorage.getUserVersion(user.getId());
+        userStorage.addFriend(user.getId(), friend.getId());
+        assertThat(userStorage.getUserVersion(user.getId())).isEqualTo(version);
+        userStorage.removeUser(friend.getId());
+        assertThat(userStorage.getUserVersion(user.getId())).isGreaterThan(version);
+        version = userStorage.getUserVersion(user.getId());
+        userStorage.updateUser(userStorage.getUserById(user.getId()).withName("Другое имя"));
+        assertThat(userStorage.getUserVersion(user.getId())).isGreaterThan(version);
+        userStorage.removeUser(user.getId());
+        assertThatThrownBy(() -> userStorage.getUserVersion(user.getId())).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void testGetFriends() {
+        User user = userStorage.addUser(validUser);
+        User friend = userStorage.addUser(new User(0,
+                "friend@mail.ru",
+                "FriendLogin",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        assertThat(userStorage.getFriends(user.getId())).isEmpty();
+        userStorage.addFriend(user.getId(), friend.getId());
+        userStorage.addFriend(friend.getId(), user.getId());
+        List<User> friends = userStorage.getFriends(user.getId());
+        assertThat(friends).extracting(User::getLogin).containsExactly("FriendLogin");
+        assertThat(friends.get(0).getFriendsIds()).isEmpty();
+        assertThatThrownBy(() -> userStorage.getFriends(999))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("error: Пользователь с id = 999 не найден");
+        userStorage.removeUser(user.getId());
+        userStorage.removeUser(friend.getId());
+    }
+
+    @Test
+    void testGetUsersByIdsAndFriendsIds() {
+        User user = userStorage.addUser(validUser);
+        User friend = userStorage.addUser(new User(0,
+                "friend@mail.ru",
+                "FriendLogin",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        userStorage.addFriend(user.getId(), friend.getId());
+        assertThat(userStorage.getUsersByIds(List.of(friend.getId(), 999, user.getId())))
+                .extracting(User::getLogin)
+                .containsExactly("FriendLogin", "Login");
+        assertThat(userStorage.getUsersByIds(List.of(user.getId())).get(0).getFriendsIds())
+                .containsExactly(friend.getId());
+        assertThat(userStorage.getFriendsIdsByUser()).isEqualTo(Map.of(user.getId(), IntSet.of(friend.getId())));
+        userStorage.removeUser(user.getId());
+        userStorage.removeUser(friend.getId());
+    }
+
+    @Test
+    void testGetCommonFriends() {
+        User user = userStorage.addUser(validUser);
+        User other = userStorage.addUser(new User(0,
+                "other@mail.ru",
+                "OtherLogin",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        User common = userStorage.addUser(new User(0,
+                "common@mail.ru",
+                "CommonLogin",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY));
+        assertThat(userStorage.getCommonFriends(user.getId(), other.getId())).isEmpty();
+        userStorage.addFriend(user.getId(), common.getId());
+        userStorage.addFriend(user.getId(), other.getId());
+        userStorage.addFriend(other.getId(), common.getId());
+        assertThat(userStorage.getCommonFriends(user.getId(), other.getId()))
+                .extracting(User::getLogin)
+                .containsExactly("CommonLogin");
+        assertThatThrownBy(() -> userStorage.getCommonFriends(user.getId(), 999))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("error: Пользователь с id = 999 не найден");
+        userStorage.removeUser(user.getId());
+        userStorage.removeUser(other.getId());
+        userStorage.removeUser(common.getId());
+    }
+
+    @Test
+    void testAddFriendWithWrongId() {
+        User user = userStorage.addUser(validUser);
+        assertThatThrownBy(() -> userStorage.addFriend(user.getId(), 999))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("error: Пользователь с id = 999 не найден");
+        assertThatThrownBy(() -> userStorage.removeFriend(999, user.getId()))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("error: Пользователь с id = 999 не найден");
+        userStorage.removeUser(user.getId());
+    }
+
+    @Test
+    void testGetUsersPage() {
+        int id1 = userStorage.addUser(validUser).getId();
+        int id2 = userStorage.addUser(new User(0,
+                "email2@mail.ru",
+                "Login2",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY)).getId();
+        assertThat(userStorage.getUsers(0, 1)).extracting(User::getId).containsExactly(id1);
+        assertThat(userStorage.getUsers(id1, 1)).extracting(User::getId).containsExactly(id2);
+        assertThat(userStorage.getUsers(id2, 1)).isEmpty();
+    }
+
+    @Test
+    void testAddUsersAndFriendships() {
+        User secondUser = new User(0,
+                "email2@mail.ru",
+                "Login2",
+                "Name",
+                LocalDate.parse("1990-01-01"),
+                IntSet.EMPTY);
+        int[] addedUsers = userStorage.addUsers(List.of(validUser, secondUser, validUser));
+        assertThat(addedUsers).containsExactly(1, 1, 0);
+        int[] addedFriendships = userStorage.addFriendships(List.of(
+                new Friendship("Login", "Login2"),
+                new Friendship("Login", "Login2"),
+                new Friendship("Login", "Unknown")));
+        assertThat(addedFriendships).containsExactly(1, 0, 0);
+        List<User> users = userStorage.getUsers();
+        assertThat(users).hasSize(2);
+        assertThat(users.get(0).getFriendsIds()).containsExactly(users.get(1).getId());
+    }
 }
@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.storage.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchIndexTest {
+    @Test
+    void testAnalyzerNormalizesRussianAndEnglish() {
+        assertThat(TextAnalyzer.analyze("Фильмы, ФИЛЬМОВ и фильм!")).containsExactly("фильм", "фильм", "и", "фильм");
+        assertThat(TextAnalyzer.analyze("Ёлки-2")).containsExactly("елк", "2");
+        assertThat(TextAnalyzer.analyze("Star Wars: starring")).containsExactly("star", "war", "starr");
+        assertThat(TextAnalyzer.analyze(null)).isEmpty();
+    }
+
+    @Test
+    void testAnalyzerMatchesEnglishSingularAndPlural() {
+        assertThat(TextAnalyzer.analyze("movie movies")).containsExactly("movi", "movi");
+        assertThat(TextAnalyzer.analyze("story Stories")).containsExactly("stori", "stori");
+        assertThat(TextAnalyzer.analyze("hero heroes")).containsExactly("hero", "hero");
+        assertThat(TextAnalyzer.analyze("class classes")).containsExactly("class", "class");
+        assertThat(TextAnalyzer.analyze("box boxes")).containsExactly("box", "box");
+        assertThat(TextAnalyzer.analyze("spy spies")).containsExactly("spi", "spi");
+        assertThat(TextAnalyzer.analyze("day days")).containsExactly("day", "day");
+        assertThat(TextAnalyzer.analyze("love loves loved")).containsExactly("lov", "lov", "lov");
+        assertThat(TextAnalyzer.analyze("the bus")).containsExactly("the", "bus");
+    }
+
+    @Test
+    void testPostingListEncodesOutOfOrderChanges() {
+        PostingList list = new PostingList();
+        list.add(5, 1);
+        list.add(300, 2);
+        list.add(100_000, 3);
+        list.add(7, 4);
+        list.add(300, 5);
+        list.remove(5);
+        list.remove(42);
+        int[] ids = new int[list.size()];
+        int[] frequencies = new int[list.size()];
+        assertThat(list.decode(ids, frequencies)).isEqualTo(3);
+        assertThat(ids).containsExactly(7, 300, 100_000);
+        assertThat(frequencies).containsExactly(4, 5, 3);
+    }
+
+    @Test
+    void testPostingListMatchesRandomChanges() {
+        Random random = new Random(3);
+        PostingList list = new PostingList();
+        Map<Integer, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 5000; i++) {
+            int id = 1 + random.nextInt(2000);
+            if (random.nextInt(4) == 0) {
+                list.remove(id);
+                expected.remove(id);
+            } else {
+                int frequency = 1 + random.nextInt(300);
+                list.add(id, frequency);
+                expected.put(id, frequency);
+            }
+        }
+        int[] ids = new int[list.size()];
+        int[] frequencies = new int[list.size()];
+        list.decode(ids, frequencies);
+        assertThat(ids).containsExactly(expected.keySet().stream().mapToInt(Integer::intValue).toArray());
+        assertThat(frequencies).containsExactly(expected.values().stream().mapToInt(Integer::intValue).toArray());
+        assertThat(list.getEncodedLength()).isLessThan(4 * list.size());
+    }
+
+    @Test
+    void testPostingListBuffersChangesInsideLargeList() {
+        PostingList list = new PostingList();
+        for (int id = 2; id <= 2000; id += 2) {
+            list.add(id, 1);
+        }
+        int encodedLength = list.getEncodedLength();
+        list.add(500, 7);
+        list.add(501, 3);
+        list.add(1, 2);
+        list.remove(1000);
+        list.remove(1001);
+        assertThat(list.getEncodedLength()).isEqualTo(encodedLength);
+        assertThat(list.size()).isEqualTo(1001);
+        int[] ids = new int[list.size()];
+        int[] frequencies = new int[list.size()];
+        assertThat(list.decode(ids, frequencies)).isEqualTo(1001);
+        assertThat(ids).startsWith(1, 2, 4).contains(500, 501).doesNotContain(1000).endsWith(1998, 2000);
+        assertThat(frequencies[0]).isEqualTo(2);
+        assertThat(frequencies[250]).isEqualTo(7);
+        assertThat(frequencies[251]).isEqualTo(3);
+    }
+
+    @Test
+    void testSearchRanksNameMatchesAndPopularity() {
+        SearchIndex index = new SearchIndex();
+        index.put(1, "Ночной дозор", "Фильм о вампирах в Москве");
+        index.put(2, "Дневной дозор", "Продолжение фильма");
+        index.put(3, "Матрица", "Фильм про хакера и дозор машин");
+        index.put(4, "The Matrix", "A hacker learns the truth");
+        assertThat(index.search("дозор", 10, id -> 0)).containsExactly(2, 1, 3);
+        assertThat(index.search("дозор", 10, id -> id == 1 ? 1000 : 0)).containsExactly(1, 2, 3);
+        assertThat(index.search("ночного дозора", 10, id -> 0)).startsWith(1);
+        assertThat(index.search("matrix hackers", 1, id -> 0)).containsExactly(4);
+        assertThat(index.search("фильмы", 10, id -> 0)).containsExactlyInAnyOrder(1, 2, 3);
+        assertThat(index.search("hacker", 10, id -> 0)).containsExactly(4);
+        assertThat(index.search("...", 10, id -> 0)).isEmpty();
+    }
+
+    @Test
+    void testSearchMatchesEnglishSingularAndPlural() {
+        SearchIndex index = new SearchIndex();
+        index.put(1, "Scary Movie", "A parody of horror movies");
+        index.put(2, "Toy Story", "Toys come to life");
+        index.put(3, "Ghost Stories", "Three cases of a sceptic");
+        assertThat(index.search("movies", 10, id -> 0)).containsExactly(1);
+        assertThat(index.search("movie", 10, id -> 0)).containsExactly(1);
+        assertThat(index.search("stories", 10, id -> 0)).containsExactlyInAnyOrder(2, 3);
+        assertThat(index.search("toy", 10, id -> 0)).containsExactly(2);
+        assertThat(index.search("case", 10, id -> 0)).containsExactly(3);
+    }
+
+    @Test
+    void testSearchFollowsUpdatesAndRemovals() {
+        SearchIndex index = new SearchIndex();
+        index.put(1, "Титаник", "Корабль");
+        index.put(2, "Аватар", "Планета");
+        index.put(1, "Титаник", "Айсберг");
+        assertThat(index.search("корабль", 10, id -> 0)).isEmpty();
+        assertThat(index.search("айсберг", 10, id -> 0)).containsExactly(1);
+        index.remove(1);
+        assertThat(index.search("титаник", 10, id -> 0)).isEmpty();
+        assertThat(index.search("аватар", 10, id -> 0)).containsExactly(2);
+    }
+}